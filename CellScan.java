@@ -0,0 +1,67 @@
+// to scan the cells of a byte array a word of mask bits at a time, with
+// bit i of a mask (word i / 64, as in BitSet.toLongArray) for cell i and
+// missing words all 0. The scans are the loops a vector unit can run
+// many cells at once: INSTANCE is a VectorCellScan when that class is on
+// the class path and the jdk.incubator.vector module is present (unless
+// floodit.vector is false), and this scalar scan otherwise
+class CellScan {
+  static final CellScan INSTANCE = load();
+
+  // to return the vector scan if it can be loaded, or else the scalar one
+  static CellScan load() {
+    if (!Boolean.parseBoolean(System.getProperty("floodit.vector", "true"))) {
+      return new CellScan();
+    }
+    try {
+      return (CellScan) Class.forName("VectorCellScan").getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      return new CellScan();
+    }
+  }
+
+  // to return the word of the given mask holding the bit of the given cell
+  static long word(long[] mask, int index) {
+    int w = index >>> 6;
+    return w < mask.length ? mask[w] : 0;
+  }
+
+  // to check if the bit of the given cell is set in the given mask
+  static boolean bit(long[] mask, int index) {
+    return (word(mask, index) >>> index & 1) != 0;
+  }
+
+  // to return how the cells are scanned
+  String name() {
+    return "scalar";
+  }
+
+  // to check if every cell whose bit in skip is clear has the given palette index
+  boolean allEqual(byte[] cells, long[] skip, byte color) {
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] != color && !bit(skip, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // to add the number of cells of each palette index whose bit in skip
+  // is clear to the given counts
+  void count(byte[] cells, long[] skip, int[] counts) {
+    for (int i = 0; i < cells.length; i++) {
+      if (!bit(skip, i)) {
+        counts[cells[i]]++;
+      }
+    }
+  }
+
+  // to set every cell whose bit in mask is set to the given palette index
+  void fill(byte[] cells, long[] mask, byte color) {
+    for (int w = 0; w < mask.length; w++) {
+      for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+        cells[w * 64 + Long.numberOfTrailingZeros(bits)] = color;
+      }
+    }
+  }
+}
@@ -1,480 +1,7448 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import javalib.impworld.World;
 import javalib.impworld.WorldScene;
-import javalib.worldimages.OutlineMode;
+import javalib.worldimages.ComputedPixelImage;
 import javalib.worldimages.OverlayOffsetImage;
 import javalib.worldimages.Posn;
-import javalib.worldimages.RectangleImage;
+import javalib.worldimages.ScaleImage;
 import javalib.worldimages.TextImage;
+import javalib.worldimages.WorldImage;
 import tester.Tester;
 
-// to represent a cell in a Flood It game
-class Cell {
-  int x;
-  int y;
-  Color color;
-  boolean flooded;
-  Cell left;
-  Cell top;
-  Cell right;
-  Cell bottom;
-
-  // cell constructor initializing a position y position, and color
-  Cell(int x, int y, Color color) {
-    this.x = x;
-    this.y = y;
-    this.color = color;
-    this.flooded = false;
-    this.left = null;
-    this.top = null;
-    this.right = null;
-    this.bottom = null;
+// to represent a growable list of ints without boxing
+class IntList {
+  int[] items;
+  int size;
+
+  // constructor initializing an empty list
+  IntList() {
+    this.items = new int[16];
+    this.size = 0;
+  }
+
+  // to add the given item to the end of this list
+  void add(int item) {
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+    }
+    this.items[this.size] = item;
+    this.size++;
+  }
+
+  // to remove and return the last item of this list
+  int pop() {
+    this.size--;
+    return this.items[this.size];
+  }
+
+  // to return the item at the given position
+  int get(int i) {
+    return this.items[i];
+  }
+
+  // to return the items of this list as sorted, run-length [start, end)
+  // ranges, ignoring duplicates. Sorts this list in place
+  int[] toRanges() {
+    Arrays.sort(this.items, 0, this.size);
+    IntList ranges = new IntList();
+    for (int i = 0; i < this.size; i++) {
+      int item = this.items[i];
+      if (ranges.size > 0 && item <= ranges.items[ranges.size - 1]) {
+        ranges.items[ranges.size - 1] = Math.max(ranges.items[ranges.size - 1], item + 1);
+      }
+      else {
+        ranges.add(item);
+        ranges.add(item + 1);
+      }
+    }
+    return Arrays.copyOf(ranges.items, ranges.size);
+  }
+
+  // to remove every item from this list, keeping its capacity
+  void clear() {
+    this.size = 0;
+  }
+
+  // to return a copy of this list
+  IntList copy() {
+    IntList copy = new IntList();
+    copy.items = Arrays.copyOf(this.items, this.items.length);
+    copy.size = this.size;
+    return copy;
   }
 }
 
-// to represent a FloodItWorld State
-class FloodItWorld extends World {
-  // list of cells
-  ArrayList<Cell> board;
+// to represent a SplittableRandom that can be reseeded in place, so a
+// board can be refilled without allocating generators. Gives the same
+// numbers as java.util.SplittableRandom for the same seed and splits
+class StripeRandom {
+  static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  long seed;
+  long gamma;
+
+  // constructor initializing a generator with the given seed
+  StripeRandom(long seed) {
+    this.reseed(seed, GOLDEN_GAMMA);
+  }
+
+  // to restart this generator from the given seed and gamma
+  void reseed(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  // to restart this generator as the next split of the given one, like
+  // SplittableRandom.split
+  void splitFrom(StripeRandom source) {
+    long seed = source.nextLong();
+    this.reseed(seed, mixGamma(source.nextSeed()));
+  }
+
+  // to advance the seed
+  long nextSeed() {
+    this.seed += this.gamma;
+    return this.seed;
+  }
+
+  // to return the next long
+  long nextLong() {
+    return mix64(this.nextSeed());
+  }
+
+  // to return the next int in [0, bound), for a positive bound
+  int nextInt(int bound) {
+    int r = mix32(this.nextSeed());
+    int m = bound - 1;
+    if ((bound & m) == 0) {
+      return r & m;
+    }
+    for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(this.nextSeed()) >>> 1) {
+      // rejects the top values that would make the result uneven
+    }
+    return r;
+  }
+
+  // to scramble the given seed into a long
+  static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  // to scramble the given seed into an int
+  static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  // to turn the given seed into an odd gamma with enough bit transitions
+  static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));
+    return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+}
+
+// to represent where the palette indices of a board's cells are kept
+abstract class CellStore {
+  // to return the palette index of the given cell
+  abstract byte get(int index);
+
+  // to set the palette index of the given cell
+  abstract void set(int index, byte color);
+
+  // to return the number of cells
+  abstract int length();
+
+  // to return a store of the same kind holding the same cells
+  abstract CellStore copy();
+
+  // to return the cells as an array
+  byte[] toArray() {
+    byte[] cells = new byte[this.length()];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = this.get(i);
+    }
+    return cells;
+  }
+
+  // to check if every cell whose bit in skip is clear has the given palette index
+  boolean allEqual(long[] skip, byte color) {
+    for (int i = 0; i < this.length(); i++) {
+      if (!CellScan.bit(skip, i) && this.get(i) != color) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // to add the number of cells of each palette index whose bit in skip
+  // is clear to the given counts
+  void count(long[] skip, int[] counts) {
+    for (int i = 0; i < this.length(); i++) {
+      if (!CellScan.bit(skip, i)) {
+        counts[this.get(i)]++;
+      }
+    }
+  }
+
+  // to set every cell whose bit in mask is set to the given palette index
+  void fill(long[] mask, byte color) {
+    for (int w = 0; w < mask.length; w++) {
+      for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+        this.set(w * 64 + Long.numberOfTrailingZeros(bits), color);
+      }
+    }
+  }
+}
+
+// to keep the cells of a board in a byte array on the heap
+class HeapCellStore extends CellStore {
+  byte[] cells;
+
+  // constructor initializing a store of the given number of cells
+  HeapCellStore(int length) {
+    this.cells = new byte[length];
+  }
+
+  byte get(int index) {
+    return this.cells[index];
+  }
+
+  void set(int index, byte color) {
+    this.cells[index] = color;
+  }
+
+  int length() {
+    return this.cells.length;
+  }
+
+  CellStore copy() {
+    HeapCellStore copy = new HeapCellStore(this.cells.length);
+    System.arraycopy(this.cells, 0, copy.cells, 0, this.cells.length);
+    return copy;
+  }
+
+  byte[] toArray() {
+    return Arrays.copyOf(this.cells, this.cells.length);
+  }
+
+  boolean allEqual(long[] skip, byte color) {
+    return CellScan.INSTANCE.allEqual(this.cells, skip, color);
+  }
+
+  void count(long[] skip, int[] counts) {
+    CellScan.INSTANCE.count(this.cells, skip, counts);
+  }
+
+  void fill(long[] mask, byte color) {
+    CellScan.INSTANCE.fill(this.cells, mask, color);
+  }
+}
+
+// to keep the cells of a board off the heap, in a temporary file mapped
+// in fixed-size chunks. The operating system only keeps the pages that
+// were touched recently in memory, so a board can be far bigger than the
+// heap as long as play stays near the frontier
+class MappedCellStore extends CellStore {
+  static final int CHUNK_BITS = 26;
+  static final int CHUNK_CELLS = 1 << CHUNK_BITS;
+  int length;
+  MappedByteBuffer[] chunks;
+
+  // constructor initializing a store of the given number of cells, all 0
+  MappedCellStore(int length) throws IOException {
+    this.length = length;
+    this.chunks = new MappedByteBuffer[(int) ((length + (long) CHUNK_CELLS - 1) / CHUNK_CELLS)];
+    Path path = Files.createTempFile("flood-it", ".cells");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      for (int c = 0; c < this.chunks.length; c++) {
+        long start = (long) c * CHUNK_CELLS;
+        this.chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+            Math.min(CHUNK_CELLS, length - start));
+      }
+    }
+    finally {
+      // the mappings keep the file's storage until they are collected
+      try {
+        Files.delete(path);
+      }
+      catch (IOException e) {
+        path.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  byte get(int index) {
+    return this.chunks[index >>> CHUNK_BITS].get(index & (CHUNK_CELLS - 1));
+  }
+
+  void set(int index, byte color) {
+    this.chunks[index >>> CHUNK_BITS].put(index & (CHUNK_CELLS - 1), color);
+  }
+
+  int length() {
+    return this.length;
+  }
+
+  CellStore copy() {
+    try {
+      MappedCellStore copy = new MappedCellStore(this.length);
+      for (int c = 0; c < this.chunks.length; c++) {
+        copy.chunks[c].put(0, this.chunks[c], 0, this.chunks[c].limit());
+      }
+      return copy;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
+
+// to represent how the cells of a width x height board touch. Cells are
+// indexed as on a Board (index = x * height + y) and the neighbors of a
+// cell are found by adding offsets to its index. Cells are sorted into
+// classes by the edges of the board they lie on and the parity of their
+// row, and each class has a precomputed table of the offsets of its
+// neighbors, so no cell keeps references to its neighbors and edges cost
+// one table lookup instead of a check per neighbor
+abstract class Topology {
+  // bits of a cell's class: on the left (x = 0), right, top (y = 0) or
+  // bottom edge, and in an odd row
+  static final int LEFT = 1;
+  static final int RIGHT = 2;
+  static final int TOP = 4;
+  static final int BOTTOM = 8;
+  static final int ODD = 16;
+  static final int CLASSES = 32;
+  int width;
+  int height;
+  // offsets of the neighbors of the cells of each class, null for the
+  // classes no cell of this board is in
+  int[][] offsets;
+  // offsets of the neighbors of the cells of each row away from the left
+  // and right edges, which most cells are
+  int[][] inner;
+  // first cell of the right column
+  int lastColumn;
+  // largest number of neighbors of a cell
+  int maxDegree;
+
+  // constructor initializing the offset tables of a board of the given size
+  Topology(int width, int height) {
+    if (width < 0 || height < 0 || (long) width * height > (long) Board.MAX_SIZE * Board.MAX_SIZE) {
+      throw new IllegalArgumentException("board size out of range: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.offsets = new int[CLASSES][];
+    // every class there is has a cell among the first and last few
+    // columns and rows
+    int[] xs = {0, 1, width - 2, width - 1};
+    int[] ys = {0, 1, 2, height - 2, height - 1};
+    IntList nx = new IntList();
+    IntList ny = new IntList();
+    for (int x : xs) {
+      for (int y : ys) {
+        if (x < 0 || y < 0 || x >= width || y >= height
+            || this.offsets[this.classOf(x, y)] != null) {
+          continue;
+        }
+        nx.clear();
+        ny.clear();
+        this.neighborsOf(x, y, nx, ny);
+        int[] table = new int[nx.size];
+        for (int n = 0; n < nx.size; n++) {
+          table[n] = (nx.get(n) - x) * height + ny.get(n) - y;
+        }
+        this.offsets[this.classOf(x, y)] = table;
+        this.maxDegree = Math.max(this.maxDegree, table.length);
+      }
+    }
+    this.lastColumn = (width - 1) * height;
+    this.inner = new int[height][];
+    for (int y = 0; y < height && width > 2; y++) {
+      this.inner[y] = this.offsets[this.classOf(1, y)];
+    }
+  }
+
+  // to return the topology of the given name ("square", "eight", "hex"
+  // or "torus") over a board of the given size
+  static Topology named(String name, int width, int height) {
+    switch (name) {
+      case "square":
+        return new SquareTopology(width, height);
+      case "eight":
+        return new EightTopology(width, height);
+      case "hex":
+        return new HexTopology(width, height);
+      case "torus":
+        return new TorusTopology(width, height);
+      default:
+        throw new IllegalArgumentException("unknown topology: " + name);
+    }
+  }
+
+  // to return the name of this topology
+  abstract String name();
+
+  // to add the position of every neighbor of the cell at the given
+  // position to the given lists, each once and never the cell itself
+  abstract void neighborsOf(int x, int y, IntList xs, IntList ys);
+
+  // to return the number of cells
+  int cellCount() {
+    return this.width * this.height;
+  }
+
+  // to return the class of the cell at the given position
+  int classOf(int x, int y) {
+    return (x == 0 ? LEFT : 0) | (x == this.width - 1 ? RIGHT : 0) | (y == 0 ? TOP : 0)
+        | (y == this.height - 1 ? BOTTOM : 0) | (y & 1) * ODD;
+  }
+
+  // to return the offsets from the given cell to its neighbors
+  int[] neighbors(int index) {
+    if (index >= this.height && index < this.lastColumn) {
+      return this.inner[index % this.height];
+    }
+    return this.edgeNeighbors(index);
+  }
+
+  // to return the offsets from the given cell of the left or right
+  // column to its neighbors
+  int[] edgeNeighbors(int index) {
+    int x = index / this.height;
+    return this.offsets[this.classOf(x, index - x * this.height)];
+  }
+
+  // to check if this is the plain grid of 4 neighbors without wrapping,
+  // the only one ComponentLabeler can label in stripes
+  boolean isGrid() {
+    return false;
+  }
+
+  // to return the number of raster pixels per side of a drawn cell
+  int pixelsPerCell() {
+    return 1;
+  }
+
+  // to return how many raster pixels the cells of the given row are
+  // shifted right by
+  int rowShift(int y) {
+    return 0;
+  }
+
+  // to return the index of the cell drawn at the given pixel of a board
+  // drawn with the given tile size, or -1 if there is none
+  int cellAtPixel(int px, int py, int tileSize) {
+    int y = Math.floorDiv(py, tileSize);
+    int x = Math.floorDiv(px - this.rowShift(y) * tileSize / this.pixelsPerCell(), tileSize);
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+      return -1;
+    }
+    return x * this.height + y;
+  }
+}
+
+// to represent a grid where each cell touches the cells above, below, left
+// and right of it
+class SquareTopology extends Topology {
+  // constructor initializing a grid of the given size
+  SquareTopology(int width, int height) {
+    super(width, height);
+  }
+
+  String name() {
+    return "square";
+  }
+
+  void neighborsOf(int x, int y, IntList xs, IntList ys) {
+    int[][] steps = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    for (int[] step : steps) {
+      int nx = x + step[0];
+      int ny = y + step[1];
+      if (nx >= 0 && nx < this.width && ny >= 0 && ny < this.height) {
+        xs.add(nx);
+        ys.add(ny);
+      }
+    }
+  }
+
+  @Override
+  boolean isGrid() {
+    return true;
+  }
+}
+
+// to represent a grid where each cell also touches the cells diagonal to it
+class EightTopology extends Topology {
+  // constructor initializing a grid of the given size
+  EightTopology(int width, int height) {
+    super(width, height);
+  }
+
+  String name() {
+    return "eight";
+  }
+
+  void neighborsOf(int x, int y, IntList xs, IntList ys) {
+    for (int nx = Math.max(0, x - 1); nx <= Math.min(this.width - 1, x + 1); nx++) {
+      for (int ny = Math.max(0, y - 1); ny <= Math.min(this.height - 1, y + 1); ny++) {
+        if (nx != x || ny != y) {
+          xs.add(nx);
+          ys.add(ny);
+        }
+      }
+    }
+  }
+}
+
+// to represent a grid of hexagons laid out in rows, with the odd rows
+// shifted right by half a cell: each cell touches two cells in its row
+// and two in each of the rows above and below it
+class HexTopology extends Topology {
+  // constructor initializing a grid of the given size
+  HexTopology(int width, int height) {
+    super(width, height);
+  }
+
+  String name() {
+    return "hex";
+  }
+
+  void neighborsOf(int x, int y, IntList xs, IntList ys) {
+    // the cells above and below start half a cell left of an even row's
+    // cell and half a cell right of an odd row's
+    int first = x - 1 + (y & 1);
+    int[][] steps = {{x - 1, y}, {x + 1, y}, {first, y - 1}, {first + 1, y - 1},
+        {first, y + 1}, {first + 1, y + 1}};
+    for (int[] step : steps) {
+      if (step[0] >= 0 && step[0] < this.width && step[1] >= 0 && step[1] < this.height) {
+        xs.add(step[0]);
+        ys.add(step[1]);
+      }
+    }
+  }
+
+  // cells are drawn as 2x2 pixel blocks so that odd rows can be shifted by half a cell
+  @Override
+  int pixelsPerCell() {
+    return 2;
+  }
+
+  @Override
+  int rowShift(int y) {
+    return y & 1;
+  }
+}
+
+// to represent a grid of 4 neighbors whose edges wrap around: the cells of
+// the left column touch those of the right one, and the top row the bottom
+class TorusTopology extends Topology {
+  // constructor initializing a grid of the given size
+  TorusTopology(int width, int height) {
+    super(width, height);
+  }
+
+  String name() {
+    return "torus";
+  }
+
+  void neighborsOf(int x, int y, IntList xs, IntList ys) {
+    int[][] steps = {{(x + this.width - 1) % this.width, y}, {(x + 1) % this.width, y},
+        {x, (y + this.height - 1) % this.height}, {x, (y + 1) % this.height}};
+    for (int i = 0; i < steps.length; i++) {
+      boolean repeated = steps[i][0] == x && steps[i][1] == y;
+      for (int j = 0; j < i; j++) {
+        repeated = repeated || steps[j][0] == steps[i][0] && steps[j][1] == steps[i][1];
+      }
+      if (!repeated) {
+        xs.add(steps[i][0]);
+        ys.add(steps[i][1]);
+      }
+    }
+  }
+}
+
+// to represent the cells of a Flood It game as palette indices packed
+// into a flat array, stored row by row (index = x * height + y), and
+// connected as its topology says (a square grid unless given another).
+// The flooded region grown from the top-left cell is kept between moves
+// together with its frontier: every same-colored component touching it.
+// A move only touches the cells it absorbs and their neighbors, and the
+// frontier doubles as a per-color count of the cells each move captures.
+// Undoing a move leaves the cells it had found in the frontier lists; the
+// frontier bits are what counts, and stale list entries are skipped.
+class Board {
+  // number of rows filled from one generator by fillRandom
+  static final int STRIPE_ROWS = 64;
+  // boards with fewer cells are filled on the calling thread
+  static final int PARALLEL_CELLS = 1 << 16;
+  // largest size whose cells can all be indexed with an int
+  static final int MAX_SIZE = 46340;
+  // boards with at least this many cells keep them off the heap (default: never)
+  static final int OFF_HEAP_CELLS = Integer.getInteger("floodit.offHeapCells",
+      Integer.MAX_VALUE);
+  // number of rows (the width of the board) and of cells in each
   int size;
+  int height;
+  Topology topology;
   int numColors;
-  int clicks;
-  int maxTries;
-  double elapsedTime;
-  // list of colors
-  ArrayList<Color> colors;
-  String message;
+  // palette index of each cell, only kept up to date outside the flooded region
+  CellStore colors;
+  // cells in the flooded region
+  BitSet flooded;
+  // unflooded cells in a component next to the flooded region
+  BitSet frontier;
+  // frontier cells, grouped by palette index. May also hold cells that
+  // are no longer in the frontier, or the same cell twice
+  IntList[] frontierByColor;
+  // number of frontier cells of each palette index
+  int[] frontierCounts;
+  // palette index of the flooded region
+  int floodColor;
+  // number of cells in the flooded region
+  int floodedCount;
+  // number of times the region was started over, and of changes to it
+  // (moves and undone moves) since then, so views can tell what changed
+  int generation;
+  int changes;
+  // neighbor cells looked at by every move so far, for measuring
+  long probes;
+  // generators of fillRandom, kept to refill the board without allocating
+  StripeRandom root;
+  StripeRandom[] generators;
 
-  // constructor initializing the game based on the
-  // given size the given number of colors in this game
-  FloodItWorld(int size, int numColors) {
-    this.size = size;
+  // board constructor initializing an empty board of the given size
+  Board(int size, int numColors) {
+    this(size, numColors, storeFor(size));
+  }
+
+  // board constructor initializing an empty board of the given size
+  // keeping its cells in the given store
+  Board(int size, int numColors, CellStore colors) {
+    this(new SquareTopology(size, size), numColors, colors);
+  }
+
+  // board constructor initializing an empty board with the given topology
+  Board(Topology topology, int numColors) {
+    this(topology, numColors, storeForCells(topology.cellCount()));
+  }
+
+  // board constructor initializing an empty board with the given topology
+  // keeping its cells in the given store
+  Board(Topology topology, int numColors, CellStore colors) {
+    this.size = topology.width;
+    this.height = topology.height;
+    this.topology = topology;
     this.numColors = numColors;
-    this.colors = this.initColors(numColors);
-    this.board = this.createBoard();
-    this.connectCells();
-    this.clicks = 0;
-    // formula to get max clicks allowed depending on board dimension and colors.
-    this.maxTries = (int) Math.ceil(this.size * Math.sqrt(this.numColors) * 0.75);
-    this.message = "";
-    this.elapsedTime = 0.0;
+    this.colors = colors;
+    this.flooded = new BitSet(topology.cellCount());
+    this.frontier = new BitSet(topology.cellCount());
+    this.frontierByColor = new IntList[numColors];
+    for (int c = 0; c < numColors; c++) {
+      this.frontierByColor[c] = new IntList();
+    }
+    this.frontierCounts = new int[numColors];
+    this.floodColor = 0;
+    this.floodedCount = 0;
+    this.generation = 0;
+    this.changes = 0;
+    this.root = new StripeRandom(0);
+    this.generators = new StripeRandom[(this.size + STRIPE_ROWS - 1) / STRIPE_ROWS];
+    for (int stripe = 0; stripe < this.generators.length; stripe++) {
+      this.generators[stripe] = new StripeRandom(0);
+    }
+  }
+
+  // to return an empty store for a board of the given size, off the heap
+  // if the board has at least OFF_HEAP_CELLS cells
+  static CellStore storeFor(int size) {
+    if (size < 0 || size > MAX_SIZE) {
+      throw new IllegalArgumentException("board size out of range: " + size);
+    }
+    return storeForCells(size * size);
+  }
+
+  // to return an empty store of the given number of cells, off the heap
+  // if there are at least OFF_HEAP_CELLS
+  static CellStore storeForCells(int cells) {
+    if (cells < OFF_HEAP_CELLS) {
+      return new HeapCellStore(cells);
+    }
+    try {
+      return new MappedCellStore(cells);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // to return a copy of this board, with its flooded region and frontier
+  Board copy() {
+    Board copy = new Board(this.topology, this.numColors, this.colors.copy());
+    copy.flooded.or(this.flooded);
+    copy.frontier.or(this.frontier);
+    for (int c = 0; c < this.numColors; c++) {
+      copy.frontierByColor[c] = this.frontierByColor[c].copy();
+    }
+    System.arraycopy(this.frontierCounts, 0, copy.frontierCounts, 0, this.numColors);
+    copy.floodColor = this.floodColor;
+    copy.floodedCount = this.floodedCount;
+    copy.generation = this.generation;
+    copy.changes = this.changes;
+    return copy;
+  }
+
+  // to assign every cell a palette index drawn from the given seed. Rows
+  // are generated in stripes of STRIPE_ROWS, each from its own generator
+  // split off the seed's generator in order, so the stripes can be filled
+  // in parallel and a seed gives the same board on any number of threads.
+  // The generators are reseeded in place, so refilling a small board
+  // allocates nothing
+  void fillRandom(long seed) {
+    this.root.reseed(seed, StripeRandom.GOLDEN_GAMMA);
+    for (StripeRandom generator : this.generators) {
+      generator.splitFrom(this.root);
+    }
+    if (this.cellCount() < PARALLEL_CELLS) {
+      for (int stripe = 0; stripe < this.generators.length; stripe++) {
+        this.fillStripe(stripe, this.generators[stripe]);
+      }
+    }
+    else {
+      IntStream.range(0, this.generators.length).parallel()
+          .forEach(stripe -> this.fillStripe(stripe, this.generators[stripe]));
+    }
+  }
+
+  // to assign random palette indices to the rows of the given stripe
+  void fillStripe(int stripe, StripeRandom random) {
+    int end = Math.min(this.size, (stripe + 1) * STRIPE_ROWS) * this.height;
+    for (int i = stripe * STRIPE_ROWS * this.height; i < end; i++) {
+      this.colors.set(i, (byte) random.nextInt(this.numColors));
+    }
+  }
+
+  // to return the number of cells on this board
+  int cellCount() {
+    return this.colors.length();
+  }
+
+  // to return the index of the cell at the given position
+  int indexOf(int x, int y) {
+    return x * this.height + y;
+  }
+
+  // to return the x position of the cell at the given index
+  int xOf(int index) {
+    return index / this.height;
+  }
+
+  // to return the y position of the cell at the given index
+  int yOf(int index) {
+    return index % this.height;
+  }
+
+  // to return the palette index of the cell at the given index
+  int colorAt(int index) {
+    return this.flooded.get(index) ? this.floodColor : this.colors.get(index);
+  }
+
+  // to set the palette index of the cell at the given index
+  void setColorAt(int index, int color) {
+    this.colors.set(index, (byte) color);
+  }
+
+  // to return the index of the cell above the given one on a square grid,
+  // or -1 if there is none
+  int top(int index) {
+    return index >= this.height ? index - this.height : -1;
+  }
+
+  // to return the index of the cell below the given one on a square grid,
+  // or -1 if there is none
+  int bottom(int index) {
+    return index < this.cellCount() - this.height ? index + this.height : -1;
+  }
+
+  // to return the index of the cell left of the given one on a square
+  // grid, or -1 if there is none
+  int left(int index) {
+    return index % this.height > 0 ? index - 1 : -1;
+  }
+
+  // to return the index of the cell right of the given one on a square
+  // grid, or -1 if there is none
+  int right(int index) {
+    return index % this.height < this.height - 1 ? index + 1 : -1;
+  }
+
+  // to start the flooded region over from the top-left cell, after
+  // the colors of this board were (re)assigned
+  void resetRegion() {
+    this.flooded.clear();
+    this.frontier.clear();
+    for (IntList cells : this.frontierByColor) {
+      cells.clear();
+    }
+    Arrays.fill(this.frontierCounts, 0);
+    this.floodedCount = 0;
+    this.generation++;
+    this.changes = 0;
+    if (this.cellCount() > 0) {
+      this.visit(0);
+      this.absorb(this.colors.get(0));
+    }
   }
 
-  // to return an ArrayList of color objects that's the size
-  // of the given integer "size"
-  ArrayList<Color> initColors(int numColors) {
-    ArrayList<Color> colors = new ArrayList<>();
-    for (int i = 0; i < numColors; i++) {
-      // 16777216 is the largest number that can represent an RGB color
-      colors.add(new Color((int) (Math.random() * 16777216)));
+  // to change the flooded region to the given palette index and absorb every
+  // cell of that color connected to it, returning the number of cells absorbed
+  int flood(int color) {
+    if (color == this.floodColor) {
+      return 0;
+    }
+    this.changes++;
+    if (Metrics.active) {
+      return this.absorbMeasured(color);
+    }
+    return this.absorb(color);
+  }
+
+  // to absorb like absorb, recording the move in the metrics and as a
+  // Flight Recorder event
+  int absorbMeasured(int color) {
+    FloodEvent event = Metrics.recording ? new FloodEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    long start = System.nanoTime();
+    long before = this.probes;
+    int absorbed = this.absorb(color);
+    // neighbor cells looked at while absorbing
+    int visited = (int) (this.probes - before);
+    if (Metrics.enabled) {
+      Metrics.FLOOD.record(System.nanoTime() - start);
+      Metrics.CELLS_RECOLORED.add(absorbed);
+      Metrics.CELLS_VISITED.add(visited);
+    }
+    if (event != null && event.shouldCommit()) {
+      event.size = this.size;
+      event.color = color;
+      event.cellsRecolored = absorbed;
+      event.cellsVisited = visited;
+      event.floodedCount = this.floodedCount;
+      event.commit();
+    }
+    return absorbed;
+  }
+
+  // to return the number of cells in the frontier
+  int frontierTotal() {
+    int total = 0;
+    for (int count : this.frontierCounts) {
+      total += count;
+    }
+    return total;
+  }
+
+  // to return the number of cells that flooding with the given palette
+  // index would add to the flooded region
+  int gain(int color) {
+    return color == this.floodColor ? 0 : this.frontierCounts[color];
+  }
+
+  // to return the number of cells showing each palette index
+  int[] colorCounts() {
+    int[] counts = new int[this.numColors];
+    this.colors.count(this.flooded.toLongArray(), counts);
+    counts[this.floodColor] += this.floodedCount;
+    return counts;
+  }
+
+  // to check if every cell shows the given palette index
+  boolean isUniform(int color) {
+    return (this.floodedCount == 0 || this.floodColor == color)
+        && this.colors.allEqual(this.flooded.toLongArray(), (byte) color);
+  }
+
+  // to return the palette index each cell shows, with the flooded region
+  // written over in one masked fill
+  byte[] shownColors() {
+    byte[] cells = this.colors.toArray();
+    CellScan.INSTANCE.fill(cells, this.flooded.toLongArray(), (byte) this.floodColor);
+    return cells;
+  }
+
+  // to absorb the frontier components of the given palette index into the
+  // flooded region, then add the components next to them to the frontier
+  int absorb(int color) {
+    IntList cells = this.frontierByColor[color];
+    // keep the live cells at the front of the list, once each
+    int absorbed = 0;
+    for (int i = 0; i < cells.size; i++) {
+      int index = cells.get(i);
+      if (this.frontier.get(index)) {
+        this.frontier.clear(index);
+        this.flooded.set(index);
+        cells.items[absorbed] = index;
+        absorbed++;
+      }
+    }
+    for (int i = 0; i < absorbed; i++) {
+      int index = cells.get(i);
+      int[] offsets = this.topology.neighbors(index);
+      this.probes += offsets.length;
+      for (int offset : offsets) {
+        this.visit(index + offset);
+      }
+    }
+    cells.clear();
+    this.frontierCounts[color] = 0;
+    this.floodedCount += absorbed;
+    this.floodColor = color;
+    return absorbed;
+  }
+
+  // to add the component of the given neighbor of a flooded cell to the
+  // frontier, unless the cell is already known
+  void visit(int index) {
+    if (!this.flooded.get(index) && !this.frontier.get(index)) {
+      this.addComponent(index);
+    }
+  }
+
+  // to add the same-colored component of the given cell to the frontier,
+  // using the frontier list of its color as the work queue
+  void addComponent(int index) {
+    int color = this.colors.get(index);
+    IntList cells = this.frontierByColor[color];
+    int next = cells.size;
+    this.frontier.set(index);
+    this.frontierCounts[color]++;
+    cells.add(index);
+    while (next < cells.size) {
+      int cell = cells.get(next);
+      next++;
+      int[] offsets = this.topology.neighbors(cell);
+      this.probes += offsets.length;
+      for (int offset : offsets) {
+        this.addIfSameColor(cell + offset, color, cells);
+      }
+    }
+  }
+
+  // to add the given cell to the frontier if it has the given palette index
+  // and is not known yet
+  void addIfSameColor(int index, int color, IntList cells) {
+    if (this.colors.get(index) == color && !this.flooded.get(index)
+        && !this.frontier.get(index)) {
+      this.frontier.set(index);
+      this.frontierCounts[color]++;
+      cells.add(index);
+    }
+  }
+
+  // to flood with the given palette index like flood, returning what the
+  // move changed so it can be undone, or null if it changes nothing: the
+  // cells it absorbs and the cells it adds to the frontier, as ranges
+  UndoEntry floodUndoable(int color) {
+    if (color == this.floodColor) {
+      return null;
+    }
+    IntList cells = this.frontierByColor[color];
+    IntList live = new IntList();
+    for (int i = 0; i < cells.size; i++) {
+      if (this.frontier.get(cells.get(i))) {
+        live.add(cells.get(i));
+      }
+    }
+    int[] absorbedRanges = live.toRanges();
+    // the move only appends to the other lists, and empties this one
+    int[] sizes = new int[this.numColors];
+    for (int c = 0; c < this.numColors; c++) {
+      sizes[c] = c == color ? 0 : this.frontierByColor[c].size;
+    }
+    int previousColor = this.floodColor;
+    int absorbed = this.flood(color);
+    IntList found = new IntList();
+    for (int c = 0; c < this.numColors; c++) {
+      IntList list = this.frontierByColor[c];
+      for (int i = sizes[c]; i < list.size; i++) {
+        found.add(list.get(i));
+      }
+    }
+    return new UndoEntry(color, previousColor, absorbed, absorbedRanges, found.toRanges());
+  }
+
+  // to undo the move recorded in the given entry, which must be the last
+  // move made on this board
+  void undo(UndoEntry entry) {
+    int[] found = entry.found;
+    for (int r = 0; r < found.length; r += 2) {
+      for (int i = found[r]; i < found[r + 1]; i++) {
+        this.frontierCounts[this.colors.get(i)]--;
+      }
+      this.frontier.clear(found[r], found[r + 1]);
+    }
+    IntList cells = this.frontierByColor[entry.color];
+    int[] ranges = entry.ranges;
+    for (int r = 0; r < ranges.length; r += 2) {
+      this.flooded.clear(ranges[r], ranges[r + 1]);
+      this.frontier.set(ranges[r], ranges[r + 1]);
+      for (int i = ranges[r]; i < ranges[r + 1]; i++) {
+        cells.add(i);
+      }
+    }
+    this.frontierCounts[entry.color] = entry.absorbed;
+    this.floodedCount -= entry.absorbed;
+    this.floodColor = entry.previousColor;
+    this.changes++;
+    for (int c = 0; c < this.numColors; c++) {
+      if (this.frontierByColor[c].size > 2 * this.frontierCounts[c] + 16) {
+        this.compact(this.frontierByColor[c]);
+      }
+    }
+  }
+
+  // to drop the stale and repeated entries of the given frontier list
+  void compact(IntList cells) {
+    int live = 0;
+    for (int i = 0; i < cells.size; i++) {
+      int index = cells.get(i);
+      if (this.frontier.get(index)) {
+        // cleared so a repeat of the cell is skipped, and set again below
+        this.frontier.clear(index);
+        cells.items[live] = index;
+        live++;
+      }
+    }
+    cells.size = live;
+    for (int i = 0; i < live; i++) {
+      this.frontier.set(cells.get(i));
+    }
+  }
+}
+
+// to represent what one move changed on a board: the cells it absorbed
+// and the cells it added to the frontier, both stored as run-length
+// [start, end) index ranges, and the color of the region before it
+class UndoEntry {
+  int color;
+  int previousColor;
+  int absorbed;
+  int[] ranges;
+  int[] found;
+
+  // constructor initializing an entry
+  UndoEntry(int color, int previousColor, int absorbed, int[] ranges, int[] found) {
+    this.color = color;
+    this.previousColor = previousColor;
+    this.absorbed = absorbed;
+    this.ranges = ranges;
+    this.found = found;
+  }
+
+  // to return an estimate of the memory this entry takes
+  long bytes() {
+    // object headers and fields, plus the two arrays
+    return 64 + 4L * this.ranges.length + 4L * this.found.length;
+  }
+}
+
+// to represent the moves of a game that can be undone and redone, with
+// the oldest undo entries dropped once they take more than a memory budget
+class UndoHistory {
+  long budgetBytes;
+  long usedBytes;
+  ArrayDeque<UndoEntry> undo;
+  // colors of the undone moves, most recent last
+  IntList redo;
+
+  // constructor initializing an empty history with the given budget
+  UndoHistory(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+    this.usedBytes = 0;
+    this.undo = new ArrayDeque<>();
+    this.redo = new IntList();
+  }
+
+  // to add the given entry as the most recent move, dropping the oldest
+  // entries while over budget
+  void push(UndoEntry entry) {
+    this.undo.addLast(entry);
+    this.usedBytes += entry.bytes();
+    while (this.usedBytes > this.budgetBytes && !this.undo.isEmpty()) {
+      this.usedBytes -= this.undo.removeFirst().bytes();
+    }
+  }
+
+  // to remove and return the most recent entry, or null if there is none
+  UndoEntry pop() {
+    UndoEntry entry = this.undo.pollLast();
+    if (entry != null) {
+      this.usedBytes -= entry.bytes();
+    }
+    return entry;
+  }
+
+  // to forget every move
+  void clear() {
+    this.undo.clear();
+    this.usedBytes = 0;
+    this.redo.clear();
+  }
+}
+
+// to represent the moves made on one board: its seed, size and number of
+// colors, and for every click the palette index played and the second of
+// the game's clock it was played at. Undone moves are taken back out, so
+// replaying the moves gives the board as it was left
+class MoveRecord {
+  int size;
+  int numColors;
+  long seed;
+  IntList colors;
+  IntList ticks;
+
+  // constructor initializing an empty record of a board
+  MoveRecord(int size, int numColors, long seed) {
+    this.size = size;
+    this.numColors = numColors;
+    this.seed = seed;
+    this.colors = new IntList();
+    this.ticks = new IntList();
+  }
+
+  // to add a move of the given palette index made at the given second
+  void add(int color, int tick) {
+    this.colors.add(color);
+    this.ticks.add(tick);
+  }
+
+  // to take back the last move
+  void pop() {
+    this.colors.pop();
+    this.ticks.pop();
+  }
+
+  // to return the number of moves
+  int moves() {
+    return this.colors.size;
+  }
+
+  // to forget every move and start over on the board of the given seed
+  void restart(long seed) {
+    this.seed = seed;
+    this.colors.clear();
+    this.ticks.clear();
+  }
+}
+
+// to keep boards that are no longer played so new games can reuse them
+// instead of allocating, up to a given number of boards. Safe to share
+// between threads
+class BoardPool {
+  int capacity;
+  ArrayList<Board> free;
+
+  // constructor initializing an empty pool keeping at most the given
+  // number of boards
+  BoardPool(int capacity) {
+    this.capacity = capacity;
+    this.free = new ArrayList<>();
+  }
+
+  // to return a board of the given size and colors filled from the given
+  // seed, reusing a pooled one if there is one
+  Board acquire(int size, int numColors, long seed) {
+    Board board = this.take(size, numColors);
+    if (board == null) {
+      board = new Board(size, numColors);
+    }
+    board.fillRandom(seed);
+    board.resetRegion();
+    return board;
+  }
+
+  // to remove and return a pooled board of the given size and colors, or
+  // null if there is none. The most recently released boards come first
+  synchronized Board take(int size, int numColors) {
+    for (int i = this.free.size() - 1; i >= 0; i--) {
+      Board board = this.free.get(i);
+      if (board.size == size && board.numColors == numColors) {
+        this.free.set(i, this.free.get(this.free.size() - 1));
+        this.free.remove(this.free.size() - 1);
+        return board;
+      }
+    }
+    return null;
+  }
+
+  // to give the given board back for reuse, once nothing plays on it;
+  // dropped if the pool is full
+  synchronized void release(Board board) {
+    if (this.free.size() < this.capacity) {
+      this.free.add(board);
+    }
+  }
+
+  // to return the number of boards waiting to be reused
+  synchronized int size() {
+    return this.free.size();
+  }
+}
+
+// to represent the state and rules of a Flood It game, independent of
+// any rendering, so it can be played programmatically
+class FloodItGame {
+  int size;
+  // how the cells of the boards of this game touch
+  Topology topology;
+  int numColors;
+  // palette index of every cell
+  Board board;
+  // seed the current board was generated from
+  long seed;
+  int clicks;
+  int maxTries;
+  double elapsedTime;
+  // components of the board, labeled the first time a hint is asked for
+  ComponentGraph graph;
+  // moves that can be undone, or null if undo is off
+  UndoHistory history;
+  // moves made on the current board, for a replay log, or null if off
+  MoveRecord recording;
+  // what strategies see of this game
+  GameView view;
+  // difficulty boards are generated for, or null to take every seed and
+  // the maxTries formula
+  Difficulty difficulty;
+
+  // constructor initializing a game of the given size and number of
+  // colors, with a board generated from the given seed
+  FloodItGame(int size, int numColors, long seed) {
+    this(new SquareTopology(size, size), numColors, seed);
+  }
+
+  // constructor initializing a game on boards of the given topology and
+  // number of colors, with a board generated from the given seed
+  FloodItGame(Topology topology, int numColors, long seed) {
+    this.size = topology.width;
+    this.topology = topology;
+    this.numColors = numColors;
+    this.seed = seed;
+    this.board = this.createBoard(seed);
+    this.graph = null;
+    this.history = null;
+    this.recording = null;
+    this.view = new GameView(this);
+    this.difficulty = null;
+    this.clicks = 0;
+    this.maxTries = maxTriesFor((topology.width + topology.height) / 2, numColors);
+    this.elapsedTime = 0.0;
+  }
+
+  // constructor initializing a game on the given board, which was
+  // generated from the given seed
+  FloodItGame(Board board, long seed) {
+    this.size = board.size;
+    this.topology = board.topology;
+    this.numColors = board.numColors;
+    this.seed = seed;
+    this.board = board;
+    this.graph = null;
+    this.history = null;
+    this.recording = null;
+    this.view = new GameView(this);
+    this.difficulty = null;
+    this.clicks = 0;
+    this.maxTries = maxTriesFor((board.size + board.height) / 2, board.numColors);
+    this.elapsedTime = 0.0;
+  }
+
+  // to return the max clicks allowed on a board of the given size and colors
+  static int maxTriesFor(int size, int numColors) {
+    // formula to get max clicks allowed depending on board dimension and colors.
+    return (int) Math.ceil(size * Math.sqrt(numColors) * 0.75);
+  }
+
+  // to return a board of this game's size with colors drawn from
+  // the given seed
+  Board createBoard(long seed) {
+    if (Metrics.active) {
+      return this.createBoardMeasured(seed);
+    }
+    Board board = new Board(this.topology, this.numColors);
+    board.fillRandom(seed);
+    board.resetRegion();
+    return board;
+  }
+
+  // to create a board like createBoard, recording it in the metrics and
+  // as a Flight Recorder event
+  Board createBoardMeasured(long seed) {
+    CreateBoardEvent event = Metrics.recording ? new CreateBoardEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    long start = System.nanoTime();
+    Board board = new Board(this.topology, this.numColors);
+    board.fillRandom(seed);
+    board.resetRegion();
+    if (Metrics.enabled) {
+      Metrics.CREATE_BOARD.record(System.nanoTime() - start);
+    }
+    if (event != null && event.shouldCommit()) {
+      event.size = this.size;
+      event.numColors = this.numColors;
+      event.seed = seed;
+      event.commit();
+    }
+    return board;
+  }
+
+  // Floods cells starting from top left with the given palette index,
+  // counting a click unless it is already the color of the flooded region
+  void play(int color) {
+    if (this.board.floodColor == color) {
+      return;
+    }
+    else {
+      if (this.history != null) {
+        this.history.push(this.board.floodUndoable(color));
+        this.history.redo.clear();
+      }
+      else {
+        this.board.flood(color);
+      }
+      this.clicks++;
+      if (this.recording != null) {
+        this.recording.add(color, (int) this.elapsedTime);
+      }
+    }
+  }
+
+  // to keep the moves made on each board of this game, with the second
+  // they were made at, so they can be written to a replay log
+  void enableRecording() {
+    this.recording = new MoveRecord(this.size, this.numColors, this.seed);
+  }
+
+  // to keep the moves of this game so they can be undone, dropping the
+  // oldest ones once they take more than the given number of bytes
+  void enableUndo(long budgetBytes) {
+    this.history = new UndoHistory(budgetBytes);
+  }
+
+  // to undo the last move, returning what it had changed, or null if
+  // there is no move to undo
+  UndoEntry undo() {
+    UndoEntry entry = this.history == null ? null : this.history.pop();
+    if (entry != null) {
+      this.board.undo(entry);
+      this.clicks--;
+      this.history.redo.add(entry.color);
+      if (this.recording != null) {
+        this.recording.pop();
+      }
+    }
+    return entry;
+  }
+
+  // to play the last undone move again, returning whether there was one
+  boolean redo() {
+    if (this.history == null || this.history.redo.size == 0) {
+      return false;
+    }
+    int color = this.history.redo.pop();
+    this.history.push(this.board.floodUndoable(color));
+    this.clicks++;
+    if (this.recording != null) {
+      this.recording.add(color, (int) this.elapsedTime);
+    }
+    return true;
+  }
+
+  // Checks if player has won or not
+  boolean win() {
+    boolean won = this.board.floodedCount == this.board.cellCount();
+    if (Metrics.enabled) {
+      Metrics.WIN_CHECKS.increment();
+      if (won) {
+        Metrics.WINS.increment();
+      }
+    }
+    return won;
+  }
+
+  // Checks if player has used up their clicks without winning
+  boolean lose() {
+    return !this.win() && this.clicks >= this.maxTries;
+  }
+
+  // to count one second of elapsed time
+  void tick() {
+    this.elapsedTime++;
+  }
+
+  // to generate the boards of this game for the given difficulty from now
+  // on, starting over on the first one from the current seed. Boards are
+  // only calibrated on square grids
+  void calibrate(Difficulty difficulty) {
+    if (!this.topology.isGrid() || this.topology.width != this.topology.height) {
+      throw new IllegalStateException("difficulty needs a square grid");
+    }
+    this.difficulty = difficulty;
+    this.reset(this.seed);
+  }
+
+  // to start this game over on a new board generated from the given seed,
+  // refilling the current board in place. With a difficulty, the first
+  // seed from the given one that meets it is used instead, and maxTries
+  // is set from its par
+  void reset(long seed) {
+    if (this.difficulty != null) {
+      Calibration calibration =
+          BoardGenerator.calibrate(this.size, this.numColors, this.difficulty, seed);
+      seed = calibration.seed;
+      this.maxTries = this.difficulty.maxTriesFor(calibration.par);
+    }
+    this.seed = seed;
+    this.board.fillRandom(seed);
+    this.board.resetRegion();
+    this.graph = null;
+    if (this.history != null) {
+      this.history.clear();
+    }
+    this.clicks = 0;
+    this.elapsedTime = 0.0;
+    if (this.recording != null) {
+      this.recording.restart(seed);
+    }
+  }
+
+  // to return the component graph of this game's board, labeling it
+  // the first time it is needed
+  ComponentGraph componentGraph() {
+    if (this.graph == null) {
+      this.graph = ComponentGraph.of(this.board);
+    }
+    return this.graph;
+  }
+
+  // to return the best next move found within the given time budget,
+  // with an estimate of the moves left after it
+  Hint hint(long budgetNanos) {
+    return Solver.beam(this.componentGraph().stateOf(this.board), Solver.BEAM_WIDTH,
+        budgetNanos);
+  }
+}
+
+// to represent the same-colored connected components of a board and
+// which of them touch, so moves can be searched as merges of graph nodes
+// instead of cell-by-cell fills
+class ComponentGraph {
+  // longest array the JVM can allocate
+  static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+  int numColors;
+  int cellCount;
+  // number of components
+  int count;
+  // component of each cell
+  int[] labels;
+  // number of cells, palette index and first cell of each component
+  int[] sizes;
+  int[] colors;
+  int[] firstCell;
+  // the neighbors of component k are edges[edgeStart[k]] to edges[edgeStart[k + 1] - 1]
+  int[] edgeStart;
+  int[] edges;
+
+  // constructor labeling the components of the given board by their
+  // original colors and linking the ones that touch
+  ComponentGraph(Board board) {
+    this.numColors = board.numColors;
+    this.cellCount = board.cellCount();
+    this.labels = new int[this.cellCount];
+    Arrays.fill(this.labels, -1);
+    IntList sizes = new IntList();
+    IntList firsts = new IntList();
+    IntList pending = new IntList();
+    for (int i = 0; i < this.cellCount; i++) {
+      if (this.labels[i] < 0) {
+        sizes.add(this.label(board, i, sizes.size, pending));
+        firsts.add(i);
+      }
+    }
+    this.count = sizes.size;
+    this.sizes = Arrays.copyOf(sizes.items, this.count);
+    this.firstCell = Arrays.copyOf(firsts.items, this.count);
+    this.colors = new int[this.count];
+    for (int k = 0; k < this.count; k++) {
+      this.colors[k] = board.colors.get(this.firstCell[k]);
+    }
+    this.linkComponents(board);
+  }
+
+  // constructor initializing an unlabeled graph, for ComponentLabeler to fill in
+  ComponentGraph(int numColors, int cellCount) {
+    this.numColors = numColors;
+    this.cellCount = cellCount;
+  }
+
+  // to return the component graph of the given board, labeled in
+  // parallel when the board is a square grid big enough to gain from it
+  static ComponentGraph of(Board board) {
+    return board.cellCount() < Board.PARALLEL_CELLS || !board.topology.isGrid()
+        ? new ComponentGraph(board) : ComponentLabeler.label(board);
+  }
+
+  // to give the same-colored component of the given cell the given label,
+  // returning its number of cells
+  int label(Board board, int start, int label, IntList pending) {
+    byte color = board.colors.get(start);
+    int size = 0;
+    this.labels[start] = label;
+    pending.add(start);
+    while (pending.size > 0) {
+      int index = pending.pop();
+      size++;
+      for (int offset : board.topology.neighbors(index)) {
+        int n = index + offset;
+        if (this.labels[n] < 0 && board.colors.get(n) == color) {
+          this.labels[n] = label;
+          pending.add(n);
+        }
+      }
+    }
+    return size;
+  }
+
+  // to build the adjacency lists from every pair of touching cells with
+  // different labels, each pair seen from its first cell. The pairs are
+  // counted first, so the array holds exactly them on any board size
+  void linkComponents(Board board) {
+    long total = 0;
+    for (int i = 0; i < this.cellCount; i++) {
+      for (int offset : board.topology.neighbors(i)) {
+        int n = i + offset;
+        if (n > i && this.labels[n] != this.labels[i]) {
+          total++;
+        }
+      }
+    }
+    long[] pairs = new long[pairArrayLength(total)];
+    int count = 0;
+    for (int i = 0; i < this.cellCount; i++) {
+      for (int offset : board.topology.neighbors(i)) {
+        int n = i + offset;
+        if (n > i && this.labels[n] != this.labels[i]) {
+          pairs[count] = pair(this.labels[i], this.labels[n]);
+          count++;
+        }
+      }
+    }
+    Arrays.sort(pairs, 0, count);
+    this.linkPairs(pairs, count);
+  }
+
+  // to return the given number of pairs as the length of an array of
+  // them, failing clearly if no array can hold that many
+  static int pairArrayLength(long pairs) {
+    if (pairs > MAX_ARRAY_LENGTH) {
+      throw new IllegalArgumentException("too many component pairs for one array: " + pairs);
+    }
+    return (int) pairs;
+  }
+
+  // to return the given two components as one edge, smaller one first
+  static long pair(int a, int b) {
+    return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+  }
+
+  // to build the adjacency lists from the first count of the given sorted
+  // edges, which may repeat
+  void linkPairs(long[] pairs, int count) {
+    int[] degree = new int[this.count + 1];
+    int unique = 0;
+    for (int e = 0; e < count; e++) {
+      if (e == 0 || pairs[e] != pairs[e - 1]) {
+        pairs[unique] = pairs[e];
+        unique++;
+        degree[(int) (pairs[e] >>> 32)]++;
+        degree[(int) pairs[e]]++;
+      }
+    }
+    this.edgeStart = new int[this.count + 1];
+    for (int k = 0; k < this.count; k++) {
+      this.edgeStart[k + 1] = this.edgeStart[k] + degree[k];
+    }
+    this.edges = new int[2 * unique];
+    int[] next = Arrays.copyOf(this.edgeStart, this.count);
+    for (int e = 0; e < unique; e++) {
+      int a = (int) (pairs[e] >>> 32);
+      int b = (int) pairs[e];
+      this.edges[next[a]] = b;
+      next[a]++;
+      this.edges[next[b]] = a;
+      next[b]++;
+    }
+  }
+
+  // to return the search state matching the flooded region of the given board
+  SolverState stateOf(Board board) {
+    SolverState state = new SolverState(this, board.floodColor);
+    for (int k = 0; k < this.count; k++) {
+      if (board.flooded.get(this.firstCell[k])) {
+        state.absorbed.set(k);
+        state.absorbedCells += this.sizes[k];
+      }
+    }
+    for (int k = state.absorbed.nextSetBit(0); k >= 0; k = state.absorbed.nextSetBit(k + 1)) {
+      state.touch(k);
+    }
+    return state;
+  }
+}
+
+// to label the components of a square grid board in parallel, for boards
+// too big to label on one thread. Each stripe of rows is labeled on its own, then
+// the pieces that continue across stripe borders are joined with a
+// concurrent union-find. Gives the same ComponentGraph as labeling the
+// board sequentially
+class ComponentLabeler {
+  // number of rows labeled together
+  static final int STRIPE_ROWS = 64;
+  // for compare-and-set on the cells of a label array
+  static final VarHandle LABELS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  // to return the component graph of the given board, labeled on the
+  // common fork/join pool
+  static ComponentGraph label(Board board) {
+    int stripes = (board.size + STRIPE_ROWS - 1) / STRIPE_ROWS;
+    ComponentGraph graph = new ComponentGraph(board.numColors, board.cellCount());
+    int[] labels = new int[board.cellCount()];
+    graph.labels = labels;
+    // each cell points at the smallest cell of its piece of the stripe
+    IntStream.range(0, stripes).parallel().forEach(s -> labelStripe(board, labels, s));
+    IntStream.range(1, stripes).parallel().forEach(s -> joinBorder(board, labels, s));
+    // each cell points at the smallest cell of its component, which
+    // points at itself
+    int[] roots = new int[stripes];
+    IntStream.range(0, stripes).parallel().forEach(s -> roots[s] = flatten(board, labels, s));
+    int[] firstLabel = new int[stripes + 1];
+    for (int s = 0; s < stripes; s++) {
+      firstLabel[s + 1] = firstLabel[s] + roots[s];
+    }
+    graph.count = firstLabel[stripes];
+    graph.sizes = new int[graph.count];
+    graph.colors = new int[graph.count];
+    graph.firstCell = new int[graph.count];
+    // components are numbered in order of their smallest cell, stored
+    // complemented in the smallest cell until every other cell has it
+    IntStream.range(0, stripes).parallel()
+        .forEach(s -> numberRoots(board, graph, s, firstLabel[s]));
+    IntStream.range(0, stripes).parallel().forEach(s -> relabel(board, labels, s));
+    IntStream.range(0, stripes).parallel().forEach(s -> finishStripe(board, graph, s));
+    long[][] stripePairs = new long[stripes][];
+    IntStream.range(0, stripes).parallel()
+        .forEach(s -> stripePairs[s] = touchingPairs(board, labels, s));
+    int count = 0;
+    for (long[] pairs : stripePairs) {
+      count += pairs.length;
+    }
+    long[] pairs = new long[count];
+    int at = 0;
+    for (long[] p : stripePairs) {
+      System.arraycopy(p, 0, pairs, at, p.length);
+      at += p.length;
+    }
+    Arrays.parallelSort(pairs);
+    graph.linkPairs(pairs, count);
+    return graph;
+  }
+
+  // to return the first cell of the given stripe
+  static int stripeStart(Board board, int stripe) {
+    return Math.min(board.size, stripe * STRIPE_ROWS) * board.height;
+  }
+
+  // to point every cell of the given stripe at the smallest cell of its
+  // same-colored piece within the stripe
+  static void labelStripe(Board board, int[] labels, int stripe) {
+    int start = stripeStart(board, stripe);
+    int end = stripeStart(board, stripe + 1);
+    Arrays.fill(labels, start, end, -1);
+    IntList pending = new IntList();
+    for (int i = start; i < end; i++) {
+      if (labels[i] < 0) {
+        byte color = board.colors.get(i);
+        labels[i] = i;
+        pending.add(i);
+        while (pending.size > 0) {
+          int index = pending.pop();
+          int top = board.top(index);
+          int bottom = board.bottom(index);
+          int left = board.left(index);
+          int right = board.right(index);
+          if (top >= start && labels[top] < 0 && board.colors.get(top) == color) {
+            labels[top] = i;
+            pending.add(top);
+          }
+          if (bottom >= 0 && bottom < end && labels[bottom] < 0
+              && board.colors.get(bottom) == color) {
+            labels[bottom] = i;
+            pending.add(bottom);
+          }
+          if (left >= 0 && labels[left] < 0 && board.colors.get(left) == color) {
+            labels[left] = i;
+            pending.add(left);
+          }
+          if (right >= 0 && labels[right] < 0 && board.colors.get(right) == color) {
+            labels[right] = i;
+            pending.add(right);
+          }
+        }
+      }
+    }
+  }
+
+  // to join the pieces on both sides of the top border of the given stripe
+  static void joinBorder(Board board, int[] labels, int stripe) {
+    int start = stripeStart(board, stripe);
+    for (int i = start; i < start + board.height; i++) {
+      int above = i - board.height;
+      if (board.colors.get(above) == board.colors.get(i)) {
+        union(labels, above, i);
+      }
+    }
+  }
+
+  // to return the root of the given cell, halving the path to it
+  static int find(int[] labels, int cell) {
+    while (true) {
+      int parent = (int) LABELS.getAcquire(labels, cell);
+      int grandparent = (int) LABELS.getAcquire(labels, parent);
+      if (parent == grandparent) {
+        return parent;
+      }
+      LABELS.compareAndSet(labels, cell, parent, grandparent);
+      cell = grandparent;
+    }
+  }
+
+  // to merge the components of the two given cells, keeping the smaller
+  // root so that a component's root stays its smallest cell
+  static void union(int[] labels, int a, int b) {
+    while (true) {
+      a = find(labels, a);
+      b = find(labels, b);
+      if (a == b) {
+        return;
+      }
+      if (a < b) {
+        int swap = a;
+        a = b;
+        b = swap;
+      }
+      if (LABELS.compareAndSet(labels, a, a, b)) {
+        return;
+      }
+    }
+  }
+
+  // to point every cell of the given stripe straight at its root,
+  // returning the number of roots in the stripe
+  static int flatten(Board board, int[] labels, int stripe) {
+    int roots = 0;
+    for (int i = stripeStart(board, stripe); i < stripeStart(board, stripe + 1); i++) {
+      labels[i] = find(labels, i);
+      if (labels[i] == i) {
+        roots++;
+      }
+    }
+    return roots;
+  }
+
+  // to number the roots of the given stripe from the given label on,
+  // storing each number complemented in its root
+  static void numberRoots(Board board, ComponentGraph graph, int stripe, int firstLabel) {
+    int next = firstLabel;
+    for (int i = stripeStart(board, stripe); i < stripeStart(board, stripe + 1); i++) {
+      if (graph.labels[i] == i) {
+        graph.labels[i] = ~next;
+        graph.firstCell[next] = i;
+        graph.colors[next] = board.colors.get(i);
+        next++;
+      }
+    }
+  }
+
+  // to give every cell of the given stripe but the roots the number of its root
+  static void relabel(Board board, int[] labels, int stripe) {
+    for (int i = stripeStart(board, stripe); i < stripeStart(board, stripe + 1); i++) {
+      if (labels[i] >= 0) {
+        labels[i] = ~labels[labels[i]];
+      }
+    }
+  }
+
+  // to give the roots of the given stripe their own number and count the
+  // cells of each component in it
+  static void finishStripe(Board board, ComponentGraph graph, int stripe) {
+    int[] labels = graph.labels;
+    int run = -1;
+    int length = 0;
+    for (int i = stripeStart(board, stripe); i < stripeStart(board, stripe + 1); i++) {
+      if (labels[i] < 0) {
+        labels[i] = ~labels[i];
+      }
+      if (labels[i] != run) {
+        if (length > 0) {
+          LABELS.getAndAdd(graph.sizes, run, length);
+        }
+        run = labels[i];
+        length = 0;
+      }
+      length++;
+    }
+    if (length > 0) {
+      LABELS.getAndAdd(graph.sizes, run, length);
+    }
+  }
+
+  // to return the sorted pairs of different components that touch below
+  // or right of a cell of the given stripe, each pair once
+  static long[] touchingPairs(Board board, int[] labels, int stripe) {
+    int start = stripeStart(board, stripe);
+    int end = stripeStart(board, stripe + 1);
+    long[] pairs = new long[2 * (end - start)];
+    int count = 0;
+    for (int i = start; i < end; i++) {
+      int bottom = board.bottom(i);
+      int right = board.right(i);
+      if (bottom >= 0 && labels[bottom] != labels[i]) {
+        pairs[count] = ComponentGraph.pair(labels[i], labels[bottom]);
+        count++;
+      }
+      if (right >= 0 && labels[right] != labels[i]) {
+        pairs[count] = ComponentGraph.pair(labels[i], labels[right]);
+        count++;
+      }
+    }
+    Arrays.sort(pairs, 0, count);
+    int unique = 0;
+    for (int e = 0; e < count; e++) {
+      if (e == 0 || pairs[e] != pairs[e - 1]) {
+        pairs[unique] = pairs[e];
+        unique++;
+      }
+    }
+    return Arrays.copyOf(pairs, unique);
+  }
+}
+
+// to represent a position in a search over a component graph: the
+// components absorbed so far and the ones touching them
+class SolverState {
+  ComponentGraph graph;
+  BitSet absorbed;
+  BitSet frontier;
+  int absorbedCells;
+  // palette index of the flooded region
+  int color;
+  // moves made since the start of the search, and the first of them
+  int moves;
+  int firstMove;
+
+  // constructor initializing a state with nothing absorbed yet
+  SolverState(ComponentGraph graph, int color) {
+    this.graph = graph;
+    this.absorbed = new BitSet(graph.count);
+    this.frontier = new BitSet(graph.count);
+    this.absorbedCells = 0;
+    this.color = color;
+    this.moves = 0;
+    this.firstMove = -1;
+  }
+
+  // to return a copy of this state
+  SolverState copy() {
+    SolverState copy = new SolverState(this.graph, this.color);
+    copy.absorbed = (BitSet) this.absorbed.clone();
+    copy.frontier = (BitSet) this.frontier.clone();
+    copy.absorbedCells = this.absorbedCells;
+    copy.moves = this.moves;
+    copy.firstMove = this.firstMove;
+    return copy;
+  }
+
+  // to add the unabsorbed neighbors of the given component to the frontier
+  void touch(int component) {
+    for (int e = this.graph.edgeStart[component]; e < this.graph.edgeStart[component + 1];
+        e++) {
+      if (!this.absorbed.get(this.graph.edges[e])) {
+        this.frontier.set(this.graph.edges[e]);
+      }
+    }
+  }
+
+  // to return the number of cells each palette index would absorb
+  int[] gains() {
+    int[] gains = new int[this.graph.numColors];
+    for (int k = this.frontier.nextSetBit(0); k >= 0; k = this.frontier.nextSetBit(k + 1)) {
+      gains[this.graph.colors[k]] += this.graph.sizes[k];
+    }
+    gains[this.color] = 0;
+    return gains;
+  }
+
+  // to return the state after flooding with the given palette index
+  SolverState play(int color) {
+    SolverState next = this.copy();
+    IntList taken = new IntList();
+    for (int k = this.frontier.nextSetBit(0); k >= 0; k = this.frontier.nextSetBit(k + 1)) {
+      if (this.graph.colors[k] == color) {
+        taken.add(k);
+      }
+    }
+    for (int i = 0; i < taken.size; i++) {
+      int k = taken.get(i);
+      next.frontier.clear(k);
+      next.absorbed.set(k);
+      next.absorbedCells += this.graph.sizes[k];
+    }
+    for (int i = 0; i < taken.size; i++) {
+      next.touch(taken.get(i));
+    }
+    next.color = color;
+    next.moves = this.moves + 1;
+    next.firstMove = this.firstMove < 0 ? color : this.firstMove;
+    return next;
+  }
+
+  // to check if every component has been absorbed
+  boolean solved() {
+    return this.absorbedCells == this.graph.cellCount;
+  }
+}
+
+// to represent a suggested move and the estimated number of moves
+// needed after it to flood the board
+class Hint {
+  int color;
+  int movesLeft;
+
+  // constructor initializing a hint
+  Hint(int color, int movesLeft) {
+    this.color = color;
+    this.movesLeft = movesLeft;
+  }
+}
+
+// to search for short solutions over a component graph
+class Solver {
+  // number of states kept at each depth of the beam search
+  static final int BEAM_WIDTH = 32;
+
+  // to return the color that absorbs the most cells from the given state
+  static int greedyMove(SolverState state) {
+    int[] gains = state.gains();
+    int best = state.color;
+    for (int c = 0; c < gains.length; c++) {
+      if (gains[c] > gains[best]) {
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  // to play greedy moves from the given state until the board is flooded
+  // and return the final state
+  static SolverState greedy(SolverState state) {
+    while (!state.solved()) {
+      state = state.play(greedyMove(state));
+    }
+    return state;
+  }
+
+  // to search the given number of states per depth until one floods the
+  // board or the time budget runs out, then return the first move of the
+  // shortest solution found, falling back on greedy play to finish
+  static Hint beam(SolverState start, int width, long budgetNanos) {
+    long begin = System.nanoTime();
+    if (start.solved()) {
+      return new Hint(start.color, 0);
+    }
+    SolverState best = greedy(start);
+    ArrayList<SolverState> level = new ArrayList<>();
+    level.add(start);
+    while (!level.isEmpty() && level.get(0).moves + 1 < best.moves) {
+      ArrayList<SolverState> candidates = new ArrayList<>();
+      HashSet<BitSet> seen = new HashSet<>();
+      for (SolverState state : level) {
+        int[] gains = state.gains();
+        for (int c = 0; c < gains.length; c++) {
+          if (gains[c] > 0) {
+            SolverState next = state.play(c);
+            if (next.solved() && next.moves < best.moves) {
+              best = next;
+            }
+            else if (seen.add(next.absorbed)) {
+              candidates.add(next);
+            }
+          }
+        }
+        if (System.nanoTime() - begin > budgetNanos) {
+          break;
+        }
+      }
+      candidates.sort((a, b) -> b.absorbedCells - a.absorbedCells);
+      level = new ArrayList<>(candidates.subList(0, Math.min(width, candidates.size())));
+      if (System.nanoTime() - begin > budgetNanos) {
+        if (!level.isEmpty()) {
+          SolverState finished = greedy(level.get(0));
+          if (finished.moves < best.moves) {
+            best = finished;
+          }
+        }
+        break;
+      }
+    }
+    return new Hint(best.firstMove, best.moves - start.moves - 1);
+  }
+
+  // to return the moves that flood the board from the given state,
+  // following the beam search of the given width move by move
+  static int[] solve(SolverState start, int width) {
+    IntList moves = new IntList();
+    SolverState state = start;
+    while (!state.solved()) {
+      int color = beam(state, width, Long.MAX_VALUE).color;
+      state = state.play(color);
+      state.firstMove = -1;
+      moves.add(color);
+    }
+    return Arrays.copyOf(moves.items, moves.size);
+  }
+}
+
+// to represent a target difficulty for generated boards: the band of
+// solver-computed par (moves needed to flood the board) to accept, and
+// the clicks allowed beyond par
+class Difficulty {
+  int minPar;
+  int maxPar;
+  int slack;
+
+  // constructor initializing a difficulty
+  Difficulty(int minPar, int maxPar, int slack) {
+    if (minPar < 0 || maxPar < minPar || slack < 0) {
+      throw new IllegalArgumentException("bad difficulty: par " + minPar + " to " + maxPar
+          + ", slack " + slack);
+    }
+    this.minPar = minPar;
+    this.maxPar = maxPar;
+    this.slack = slack;
+  }
+
+  // to check if a board with the given par is in the band
+  boolean accepts(int par) {
+    return par >= this.minPar && par <= this.maxPar;
+  }
+
+  // to return the clicks allowed on a board with the given par
+  int maxTriesFor(int par) {
+    return par + this.slack;
+  }
+}
+
+// to represent a seed whose board meets a difficulty, its par, and the
+// number of seeds tried to find it
+class Calibration {
+  long seed;
+  int par;
+  int candidates;
+
+  // constructor initializing a calibration
+  Calibration(long seed, int par, int candidates) {
+    this.seed = seed;
+    this.par = par;
+    this.candidates = candidates;
+  }
+}
+
+// to find seeds whose boards meet a difficulty, scoring candidate boards
+// in parallel with a narrow beam search. The search is bounded by its
+// width rather than by time, so a seed always gets the same par and the
+// same seed is found on any number of threads
+class BoardGenerator {
+  // number of states kept per depth when computing par
+  static final int PAR_WIDTH = 4;
+  // seeds tried before giving up on a difficulty
+  static final int MAX_CANDIDATES = 1 << 16;
+
+  // to return the number of moves the solver needs to flood the given
+  // board from its current position
+  static int par(Board board) {
+    SolverState start = ComponentGraph.of(board).stateOf(board);
+    if (start.solved()) {
+      return 0;
+    }
+    return Solver.beam(start, PAR_WIDTH, Long.MAX_VALUE).movesLeft + 1;
+  }
+
+  // to return the par of the board generated from the given seed
+  static int par(int size, int numColors, long seed) {
+    Board board = new Board(size, numColors);
+    board.fillRandom(seed);
+    board.resetRegion();
+    return par(board);
+  }
+
+  // to return the first seed from the given one on whose board par is
+  // within the given difficulty, scoring a batch of seeds per core at once
+  static Calibration calibrate(int size, int numColors, Difficulty difficulty, long firstSeed) {
+    int batch = 2 * ForkJoinPool.getCommonPoolParallelism();
+    int[] pars = new int[batch];
+    for (int tried = 0; tried < MAX_CANDIDATES; tried += batch) {
+      long start = firstSeed + tried;
+      IntStream.range(0, batch).parallel()
+          .forEach(i -> pars[i] = par(size, numColors, start + i));
+      for (int i = 0; i < batch; i++) {
+        if (difficulty.accepts(pars[i])) {
+          return new Calibration(start + i, pars[i], tried + i + 1);
+        }
+      }
+    }
+    throw new IllegalArgumentException("no " + size + "x" + size + " board with " + numColors
+        + " colors and par " + difficulty.minPar + " to " + difficulty.maxPar + " in "
+        + MAX_CANDIDATES + " seeds");
+  }
+}
+
+// to represent what a Strategy can see of a game: the board, the
+// flooded region and the clicks, without a way to change them
+interface BoardView {
+  // to return the size the board was made with, its width
+  int size();
+
+  // to return the number of columns of the board
+  int width();
+
+  // to return the number of rows of the board
+  int height();
+
+  // to return the number of cells on the board
+  int cellCount();
+
+  // to return the number of colors in the palette
+  int numColors();
+
+  // to return the palette index of the flooded region
+  int floodColor();
+
+  // to return the palette index of the cell at the given index
+  int colorAt(int index);
+
+  // to return the number of cells flooding with the given palette index would add
+  int gain(int color);
+
+  // to return the number of cells in the flooded region
+  int floodedCount();
+
+  // to return the number of clicks made, and allowed
+  int clicks();
+
+  int maxTries();
+
+  // to return a search state for the current position, which the
+  // strategy may play on freely
+  SolverState solverState();
+}
+
+// to show a FloodItGame to strategies through a BoardView
+class GameView implements BoardView {
+  FloodItGame game;
+
+  // constructor initializing a view of the given game
+  GameView(FloodItGame game) {
+    this.game = game;
+  }
+
+  public int size() {
+    return this.game.size;
+  }
+
+  public int width() {
+    return this.game.board.topology.width;
+  }
+
+  public int height() {
+    return this.game.board.height;
+  }
+
+  public int cellCount() {
+    return this.game.board.cellCount();
+  }
+
+  public int numColors() {
+    return this.game.numColors;
+  }
+
+  public int floodColor() {
+    return this.game.board.floodColor;
+  }
+
+  public int colorAt(int index) {
+    return this.game.board.colorAt(index);
+  }
+
+  public int gain(int color) {
+    return this.game.board.gain(color);
+  }
+
+  public int floodedCount() {
+    return this.game.board.floodedCount;
+  }
+
+  public int clicks() {
+    return this.game.clicks;
+  }
+
+  public int maxTries() {
+    return this.game.maxTries;
+  }
+
+  public SolverState solverState() {
+    return this.game.componentGraph().stateOf(this.game.board);
+  }
+}
+
+// to choose the moves of a headless Flood It game. Strategies may be
+// shared by the threads of a tournament, so they keep no state between moves
+interface Strategy {
+  // to return the palette index to play next on the given board, using
+  // the given generator for any random choice
+  int choose(BoardView board, Random random);
+}
+
+// to choose a random color among the ones that grow the flooded region
+class RandomStrategy implements Strategy {
+  public int choose(BoardView board, Random random) {
+    int options = 0;
+    for (int c = 0; c < board.numColors(); c++) {
+      if (board.gain(c) > 0) {
+        options++;
+      }
+    }
+    int pick = random.nextInt(options);
+    for (int c = 0; c < board.numColors(); c++) {
+      if (board.gain(c) > 0) {
+        if (pick == 0) {
+          return c;
+        }
+        pick--;
+      }
+    }
+    return board.floodColor();
+  }
+}
+
+// to choose the color that captures the most cells, preferring the
+// lowest palette index on ties
+class GreedyStrategy implements Strategy {
+  public int choose(BoardView board, Random random) {
+    int best = board.floodColor();
+    for (int c = 0; c < board.numColors(); c++) {
+      if (board.gain(c) > board.gain(best)) {
+        best = c;
+      }
+    }
+    return best;
+  }
+}
+
+// to choose the color that captures the most cells over two moves, on the
+// component graph of the board, preferring more cells on the first move
+class LookaheadStrategy implements Strategy {
+  public int choose(BoardView board, Random random) {
+    SolverState state = board.solverState();
+    int[] gains = state.gains();
+    int best = board.floodColor();
+    long bestScore = -1;
+    for (int c = 0; c < gains.length; c++) {
+      if (gains[c] > 0) {
+        int next = 0;
+        for (int gain : state.play(c).gains()) {
+          next = Math.max(next, gain);
+        }
+        long score = ((long) (gains[c] + next) << 32) | gains[c];
+        if (score > bestScore) {
+          best = c;
+          bestScore = score;
+        }
+      }
+    }
+    return best;
+  }
+}
+
+// to play the moves suggested by the solver, within the given time
+// budget per move
+class HintStrategy implements Strategy {
+  long budgetNanos;
+
+  // constructor initializing the time budget per move
+  HintStrategy(long budgetNanos) {
+    this.budgetNanos = budgetNanos;
+  }
+
+  public int choose(BoardView board, Random random) {
+    return Solver.beam(board.solverState(), Solver.BEAM_WIDTH, this.budgetNanos).color;
+  }
+}
+
+// to represent the totals of a batch of headless games
+class BatchResult {
+  long games;
+  // games won within maxTries
+  long wins;
+  // clicks needed to flood the whole board, summed over all games
+  long totalClicks;
+  long nanos;
+
+  // constructor initializing the totals of a batch
+  BatchResult(long games, long wins, long totalClicks, long nanos) {
+    this.games = games;
+    this.wins = wins;
+    this.totalClicks = totalClicks;
+    this.nanos = nanos;
+  }
+
+  // to return the totals of this batch and the given one together
+  BatchResult combine(BatchResult other) {
+    return new BatchResult(this.games + other.games, this.wins + other.wins,
+        this.totalClicks + other.totalClicks, Math.max(this.nanos, other.nanos));
+  }
+
+  // to return the fraction of games won within maxTries
+  double winRate() {
+    return this.games == 0 ? 0.0 : (double) this.wins / this.games;
+  }
+
+  // to return the average number of clicks needed to flood the board
+  double meanClicks() {
+    return this.games == 0 ? 0.0 : (double) this.totalClicks / this.games;
+  }
+
+  // to return the number of games played per second of wall-clock time
+  double gamesPerSecond() {
+    return this.nanos == 0 ? 0.0 : this.games * 1e9 / this.nanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d games, win rate %.3f, mean clicks %.2f, %.0f games/sec",
+        this.games, this.winRate(), this.meanClicks(), this.gamesPerSecond());
+  }
+}
+
+// to play a range of consecutively seeded games, splitting the range
+// across the fork/join pool
+class BatchTask extends RecursiveTask<BatchResult> {
+  private static final long serialVersionUID = 1L;
+  // number of games below which a task plays its games itself
+  static final long THRESHOLD = 16;
+  int size;
+  int numColors;
+  Strategy strategy;
+  long firstSeed;
+  long count;
+
+  // constructor initializing a task for the games seeded
+  // firstSeed, firstSeed + 1, ..., firstSeed + count - 1
+  BatchTask(int size, int numColors, Strategy strategy, long firstSeed, long count) {
+    this.size = size;
+    this.numColors = numColors;
+    this.strategy = strategy;
+    this.firstSeed = firstSeed;
+    this.count = count;
+  }
+
+  @Override
+  protected BatchResult compute() {
+    if (this.count <= THRESHOLD) {
+      long wins = 0;
+      long clicks = 0;
+      for (long seed = this.firstSeed; seed < this.firstSeed + this.count; seed++) {
+        FloodItGame game = BatchRunner.playOut(this.size, this.numColors, this.strategy, seed);
+        if (game.clicks <= game.maxTries) {
+          wins++;
+        }
+        clicks += game.clicks;
+      }
+      return new BatchResult(this.count, wins, clicks, 0);
+    }
+    long half = this.count / 2;
+    BatchTask first = new BatchTask(this.size, this.numColors, this.strategy, this.firstSeed, half);
+    BatchTask second = new BatchTask(this.size, this.numColors, this.strategy,
+        this.firstSeed + half, this.count - half);
+    first.fork();
+    BatchResult secondResult = second.compute();
+    return first.join().combine(secondResult);
+  }
+}
+
+// to play many seeded headless games across all cores and report how
+// they went, e.g. to check the maxTries formula of FloodItGame
+class BatchRunner {
+  // to play the game with the given seed with the given strategy until the
+  // board is flooded, and return it
+  static FloodItGame playOut(int size, int numColors, Strategy strategy, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    Random random = new Random(seed);
+    while (!game.win()) {
+      game.play(strategy.choose(game.view, random));
+    }
+    return game;
+  }
+
+  // to play the games seeded firstSeed to firstSeed + games - 1 on the
+  // common fork/join pool and return their totals
+  static BatchResult run(int size, int numColors, Strategy strategy, long firstSeed,
+      long games) {
+    long start = System.nanoTime();
+    BatchResult result = ForkJoinPool.commonPool()
+        .invoke(new BatchTask(size, numColors, strategy, firstSeed, games));
+    result.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // to print the greedy and random results for a range of sizes and
+  // color counts, given as: games [sizes...] (defaults: 10000 games)
+  public static void main(String[] args) {
+    long games = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+    int[] sizes = {2, 5, 10, 14, 20, 26};
+    if (args.length > 1) {
+      sizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    for (int size : sizes) {
+      for (int numColors = 3; numColors <= 8; numColors++) {
+        System.out.println("size " + size + ", colors " + numColors);
+        System.out.println("  greedy: " + run(size, numColors, new GreedyStrategy(), 0, games));
+        System.out.println("  random: " + run(size, numColors, new RandomStrategy(), 0, games));
+      }
+    }
+  }
+}
+
+// to represent how one strategy did in a tournament. Updated by every
+// thread of the tournament at once
+class StrategyScore {
+  String name;
+  LongAdder games;
+  // games flooded within maxTries
+  LongAdder wins;
+  // games flooded at all, and their clicks
+  LongAdder finished;
+  LongAdder totalClicks;
+  // time taken by each call to choose
+  LatencyHistogram decisions;
+
+  // constructor initializing an empty score for the named strategy
+  StrategyScore(String name) {
+    this.name = name;
+    this.games = new LongAdder();
+    this.wins = new LongAdder();
+    this.finished = new LongAdder();
+    this.totalClicks = new LongAdder();
+    this.decisions = new LatencyHistogram(name);
+  }
+
+  // to return the fraction of games won within maxTries
+  double winRate() {
+    long games = this.games.sum();
+    return games == 0 ? 0.0 : (double) this.wins.sum() / games;
+  }
+
+  // to return the mean clicks needed to flood the board
+  double meanClicks() {
+    long finished = this.finished.sum();
+    return finished == 0 ? 0.0 : (double) this.totalClicks.sum() / finished;
+  }
+
+  // to return the win rate, mean clicks and decision latency as one line
+  public String toString() {
+    long decisions = this.decisions.count();
+    return String.format("%-10s win rate %5.1f%%, clicks %6.2f, decision mean %.1f us,"
+        + " p99 %.1f us, stalled %d", this.name, 100 * this.winRate(), this.meanClicks(),
+        decisions == 0 ? 0.0 : this.decisions.totalNanos.sum() / 1e3 / decisions,
+        this.decisions.percentile(0.99) / 1e3, this.games.sum() - this.finished.sum());
+  }
+}
+
+// to play every entered strategy on the same seeded boards, with the
+// games spread over the common fork/join pool, and compare how they do
+class Tournament {
+  ArrayList<Strategy> strategies;
+  ArrayList<StrategyScore> scores;
+
+  // constructor initializing a tournament with no strategies
+  Tournament() {
+    this.strategies = new ArrayList<>();
+    this.scores = new ArrayList<>();
+  }
+
+  // to enter the given strategy under the given name, returning this tournament
+  Tournament add(String name, Strategy strategy) {
+    this.strategies.add(strategy);
+    this.scores.add(new StrategyScore(name));
+    return this;
+  }
+
+  // to play the games seeded firstSeed to firstSeed + games - 1 with every
+  // strategy and return their scores, in the order they were entered
+  ArrayList<StrategyScore> run(int size, int numColors, long firstSeed, int games) {
+    IntStream.range(0, games).parallel().forEach(g -> {
+      for (int s = 0; s < this.strategies.size(); s++) {
+        play(this.strategies.get(s), this.scores.get(s), size, numColors, firstSeed + g);
+      }
+    });
+    return this.scores;
+  }
+
+  // to play the game with the given seed with the given strategy until the
+  // board is flooded, or until the strategy picks a move that captures
+  // nothing, and add the result to the given score
+  static void play(Strategy strategy, StrategyScore score, int size, int numColors, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    Random random = new Random(seed);
+    boolean stalled = false;
+    while (!game.win() && !stalled) {
+      long start = System.nanoTime();
+      int color = strategy.choose(game.view, random);
+      score.decisions.record(System.nanoTime() - start);
+      stalled = color < 0 || color >= numColors || game.board.gain(color) == 0;
+      if (!stalled) {
+        game.play(color);
+      }
+    }
+    score.games.increment();
+    if (!stalled) {
+      score.finished.increment();
+      score.totalClicks.add(game.clicks);
+      if (game.clicks <= game.maxTries) {
+        score.wins.increment();
+      }
+    }
+  }
+
+  // to run the random, greedy, lookahead and solver strategies against
+  // each other and print their scores, given as:
+  //   games size colors (defaults: 1000 games on 14x14 boards with 6 colors)
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+    int numColors = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+    Tournament tournament = new Tournament()
+        .add("random", new RandomStrategy())
+        .add("greedy", new GreedyStrategy())
+        .add("lookahead", new LookaheadStrategy())
+        .add("solver", new HintStrategy(1000000));
+    long start = System.nanoTime();
+    ArrayList<StrategyScore> scores = tournament.run(size, numColors, 0, games);
+    System.out.printf("%d games on %dx%d boards with %d colors, %.1f s%n", games, size, size,
+        numColors, (System.nanoTime() - start) / 1e9);
+    for (StrategyScore score : scores) {
+      System.out.println(score);
+    }
+  }
+}
+
+// to represent one game hosted by a GameServer. Requests for the same
+// session run one at a time under its lock; different sessions never wait
+// on each other
+class GameSession {
+  long id;
+  // the game played, or null once the session is closed
+  FloodItGame game;
+  ReentrantLock lock;
+  // log every board's moves are appended to when it is left, or null
+  ReplayLog log;
+  // System.nanoTime() of the last request on this session
+  volatile long lastUsed;
+
+  // constructor initializing a session around the given game
+  GameSession(long id, FloodItGame game) {
+    this(id, game, null);
+  }
+
+  // constructor initializing a session around the given game, appending
+  // the moves made on each of its boards to the given log
+  GameSession(long id, FloodItGame game, ReplayLog log) {
+    this.id = id;
+    this.game = game;
+    this.lock = new ReentrantLock();
+    this.log = log;
+    this.lastUsed = System.nanoTime();
+    if (log != null) {
+      game.enableRecording();
+    }
+  }
+
+  // to play the given palette index and return the state after the move
+  String flood(int color) {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      if (color < 0 || color >= this.game.numColors) {
+        throw new IllegalArgumentException("color out of range: " + color);
+      }
+      if (!this.game.win() && !this.game.lose()) {
+        this.game.play(color);
+      }
+      return this.stateLocked();
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to start the game over on a board generated from the given seed and
+  // return the new state
+  String reset(long seed) {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      this.logLocked();
+      this.game.reset(seed);
+      return this.stateLocked();
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to start the game over on the board of the seed after the current
+  // one, read under the lock, and return the new state
+  String reset() {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      return this.reset(this.game.seed + 1);
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to count one second of the game's clock and return the state
+  String tick() {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      this.game.tick();
+      return this.stateLocked();
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to return the state of the game
+  String state() {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      return this.stateLocked();
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to end the session, giving its board back to the given pool, and
+  // return its last state
+  String close(BoardPool pool) {
+    this.lock.lock();
+    try {
+      this.checkOpen();
+      String state = this.stateLocked();
+      this.logLocked();
+      pool.release(this.game.board);
+      this.game = null;
+      return state;
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to end the session like close if no request has used it for more
+  // than the given nanoseconds before the given System.nanoTime(),
+  // returning whether it was ended
+  boolean closeIfIdle(BoardPool pool, long now, long idleNanos) {
+    this.lock.lock();
+    try {
+      if (this.game == null || now - this.lastUsed <= idleNanos) {
+        return false;
+      }
+      try {
+        this.logLocked();
+      }
+      finally {
+        pool.release(this.game.board);
+        this.game = null;
+      }
+      return true;
+    }
+    finally {
+      this.lock.unlock();
+    }
+  }
+
+  // to append the moves made on the current board to the log, if there
+  // is a log and any move was made, while holding the lock
+  void logLocked() {
+    if (this.log != null && this.game.recording.moves() > 0) {
+      try {
+        this.log.append(this.game.recording, (int) this.game.elapsedTime);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // to refuse a request on a closed session, and count one on an open
+  // session as a use, while holding the lock
+  void checkOpen() {
+    if (this.game == null) {
+      throw new IllegalArgumentException("session closed: " + this.id);
+    }
+    this.lastUsed = System.nanoTime();
+  }
+
+  // to return the state of the game as one line of key=value pairs,
+  // while holding the lock
+  String stateLocked() {
+    return "id=" + this.id + " size=" + this.game.size + " colors=" + this.game.numColors
+        + " seed=" + this.game.seed + " color=" + this.game.board.floodColor
+        + " flooded=" + this.game.board.floodedCount + " clicks=" + this.game.clicks
+        + " maxTries=" + this.game.maxTries + " time=" + (long) this.game.elapsedTime
+        + " won=" + this.game.win() + " lost=" + this.game.lose();
+  }
+}
+
+// to host many Flood It sessions over HTTP on the JDK's built-in server.
+// Every request runs on its own virtual thread when the JDK has them (and
+// on a cached thread pool otherwise), and sessions are looked up in a
+// concurrent map, so the only serialization is per session. Requests are
+// GET paths with query parameters, answered with one line of state:
+//   /new?size=14&colors=6&seed=1   /flood?id=1&color=3
+//   /reset?id=1&seed=2             /tick?id=1             /state?id=1
+// and /metrics answers with the Metrics report. Sessions are capped in
+// number, and ones left without a /close are ended once idle
+class GameServer {
+  // most cells a session's board may have
+  static final int MAX_CELLS = 1 << 20;
+  // default most sessions open at once, and time a session may go
+  // without a request before it is ended
+  static final int MAX_SESSIONS = 50000;
+  static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+  // time between sweeps for idle sessions
+  static final long SWEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+  HttpServer server;
+  ExecutorService executor;
+  // thread sweeping idle sessions while the server runs
+  ScheduledExecutorService sweeper;
+  int maxSessions;
+  long idleNanos;
+  ConcurrentHashMap<Long, GameSession> sessions;
+  AtomicLong nextId;
+  // boards of closed sessions, reused by new ones
+  BoardPool pool;
+  // log the sessions append their games to, or null
+  ReplayLog log;
+
+  // constructor initializing a server listening on the given port
+  // (0 picks a free one), which is not started yet
+  GameServer(int port) throws IOException {
+    this(port, null);
+  }
+
+  // constructor initializing a server listening on the given port
+  // (0 picks a free one), which is not started yet, whose sessions
+  // append their games to the given log
+  GameServer(int port, ReplayLog log) throws IOException {
+    this.log = log;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        1024);
+    this.executor = newThreadPerTaskExecutor();
+    this.sessions = new ConcurrentHashMap<>();
+    this.nextId = new AtomicLong(1);
+    this.pool = new BoardPool(1024);
+    this.maxSessions = MAX_SESSIONS;
+    this.idleNanos = IDLE_NANOS;
+    this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "GameServer sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/", this::handle);
+  }
+
+  // to return an executor starting a virtual thread per task, or a cached
+  // pool of platform threads on JDKs without virtual threads
+  static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    }
+    catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  // to start answering requests, and sweeping idle sessions
+  void start() {
+    this.server.start();
+    this.sweeper.scheduleWithFixedDelay(() -> this.evictIdle(System.nanoTime()), SWEEP_NANOS,
+        SWEEP_NANOS, TimeUnit.NANOSECONDS);
+  }
+
+  // to stop answering requests and drop every session
+  void stop() {
+    this.server.stop(0);
+    this.executor.shutdown();
+    this.sweeper.shutdownNow();
+    this.sessions.clear();
+  }
+
+  // to end every session no request has used for more than idleNanos
+  // before the given System.nanoTime(), giving their boards back to the
+  // pool, and return how many were ended
+  int evictIdle(long now) {
+    int evicted = 0;
+    for (GameSession session : this.sessions.values()) {
+      try {
+        session.closeIfIdle(this.pool, now, this.idleNanos);
+      }
+      catch (RuntimeException e) {
+        // the session is ended even if its moves could not be logged
+      }
+      if (session.game == null && this.sessions.remove(session.id, session)) {
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  // to return the port this server listens on
+  int port() {
+    return this.server.getAddress().getPort();
+  }
+
+  // to create a session with a new game and return it
+  GameSession open(int size, int numColors, long seed) {
+    if (size < 1 || (long) size * size > MAX_CELLS || numColors < 1 || numColors > 127) {
+      throw new IllegalArgumentException("bad board: size " + size + ", colors " + numColors);
+    }
+    // the cap is checked before the session is added, so concurrent
+    // requests can overshoot it by at most their number
+    if (this.sessions.size() >= this.maxSessions
+        && (this.evictIdle(System.nanoTime()) == 0 || this.sessions.size() >= this.maxSessions)) {
+      throw new RejectedExecutionException("server busy: " + this.sessions.size() + " sessions");
+    }
+    long id = this.nextId.getAndIncrement();
+    GameSession session = new GameSession(id,
+        new FloodItGame(this.pool.acquire(size, numColors, seed), seed), this.log);
+    this.sessions.put(id, session);
+    return session;
+  }
+
+  // to answer the request at the given path with the given query
+  // parameters, or return null if there is no such session
+  String answer(String path, HashMap<String, String> params) {
+    if (path.equals("/metrics")) {
+      return Metrics.report();
+    }
+    if (path.equals("/new")) {
+      return this.open(intParam(params, "size", 14), intParam(params, "colors", 6),
+          longParam(params, "seed", System.nanoTime())).state();
+    }
+    GameSession session = this.sessions.get(longParam(params, "id", -1));
+    if (session == null) {
+      return null;
+    }
+    switch (path) {
+      case "/flood":
+        return session.flood(intParam(params, "color", -1));
+      case "/reset":
+        return params.containsKey("seed") ? session.reset(longParam(params, "seed", 0))
+            : session.reset();
+      case "/tick":
+        return session.tick();
+      case "/state":
+        return session.state();
+      case "/close":
+        this.sessions.remove(session.id);
+        return session.close(this.pool);
+      default:
+        return null;
+    }
+  }
+
+  // to answer one HTTP exchange, with 400 for a bad request, 503 if the
+  // server has too many sessions to open one, and 500 if answering it
+  // failed, always closing the exchange
+  void handle(HttpExchange exchange) throws IOException {
+    int status = 200;
+    String body;
+    try {
+      body = this.answer(exchange.getRequestURI().getPath(),
+          parseQuery(exchange.getRequestURI().getRawQuery()));
+      if (body == null) {
+        status = 404;
+        body = "not found";
+      }
+    }
+    catch (IllegalArgumentException e) {
+      status = 400;
+      body = e.getMessage();
+    }
+    catch (RejectedExecutionException e) {
+      status = 503;
+      body = e.getMessage();
+    }
+    catch (RuntimeException e) {
+      status = 500;
+      body = "internal error: " + e;
+    }
+    try {
+      byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  // to split the given raw query string into its parameters
+  static HashMap<String, String> parseQuery(String query) {
+    HashMap<String, String> params = new HashMap<>();
+    if (query == null) {
+      return params;
+    }
+    for (String pair : query.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq > 0) {
+        params.put(pair.substring(0, eq), pair.substring(eq + 1));
+      }
+    }
+    return params;
+  }
+
+  // to return the given parameter as an int, or the default if it is missing
+  static int intParam(HashMap<String, String> params, String name, int otherwise) {
+    long value = longParam(params, name, otherwise);
+    if (value != (int) value) {
+      throw new IllegalArgumentException("bad " + name + ": " + value);
+    }
+    return (int) value;
+  }
+
+  // to return the given parameter as a long, or the default if it is missing
+  static long longParam(HashMap<String, String> params, String name, long otherwise) {
+    String value = params.get(name);
+    if (value == null) {
+      return otherwise;
+    }
+    try {
+      return Long.parseLong(value);
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("bad " + name + ": " + value);
+    }
+  }
+
+  // to serve games on the given port until killed (default: 8080),
+  // appending them to the replay log at the given path if there is one
+  public static void main(String[] args) throws IOException {
+    ReplayLog log = args.length > 1 ? ReplayLog.open(Path.of(args[1])) : null;
+    GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : 8080, log);
+    server.start();
+    System.out.println("Flood It server on port " + server.port());
+  }
+}
+
+// to represent the outcome of a load run: the latency of every move of
+// the sessions that finished, sorted, and the number of sessions that failed
+class LoadResult {
+  long[] latencies;
+  int failedSessions;
+
+  // constructor initializing the outcome of a load run
+  LoadResult(long[] latencies, int failedSessions) {
+    this.latencies = latencies;
+    this.failedSessions = failedSessions;
+  }
+}
+
+// to drive a GameServer with many concurrent sessions, each played by its
+// own (virtual, when available) thread making random moves, and report
+// the latency of the moves and how many sessions each core kept going
+class LoadClient {
+  // to open the given number of sessions on the server at the given port,
+  // make the given number of moves in each, and return every finished
+  // session's move latencies in nanoseconds with the number that failed
+  static LoadResult run(int port, int sessions, int moves, int size, int numColors)
+      throws InterruptedException {
+    HttpClient client = HttpClient.newBuilder().executor(GameServer.newThreadPerTaskExecutor())
+        .build();
+    String base = "http://127.0.0.1:" + port;
+    long[][] latencies = new long[sessions][];
+    ExecutorService workers = GameServer.newThreadPerTaskExecutor();
+    for (int s = 0; s < sessions; s++) {
+      int session = s;
+      workers.execute(() -> {
+        latencies[session] = playSession(client, base, session, moves, size, numColors);
+      });
+    }
+    workers.shutdown();
+    workers.awaitTermination(1, TimeUnit.HOURS);
+    int total = 0;
+    int failed = 0;
+    for (long[] l : latencies) {
+      total += l == null ? 0 : l.length;
+      failed += l == null ? 1 : 0;
+    }
+    long[] all = new long[total];
+    int at = 0;
+    for (long[] l : latencies) {
+      if (l != null) {
+        System.arraycopy(l, 0, all, at, l.length);
+        at += l.length;
+      }
+    }
+    Arrays.sort(all);
+    return new LoadResult(all, failed);
+  }
+
+  // to open one session and make the given number of random moves in it,
+  // starting it over whenever it ends, and return each move's latency, or
+  // null if a request failed
+  static long[] playSession(HttpClient client, String base, long seed, int moves, int size,
+      int numColors) {
+    Random random = new Random(seed);
+    long[] latencies = new long[moves];
+    try {
+      String state = get(client, base + "/new?size=" + size + "&colors=" + numColors
+          + "&seed=" + seed);
+      String id = field(state, "id");
+      for (int m = 0; m < moves; m++) {
+        long start = System.nanoTime();
+        state = get(client, base + "/flood?id=" + id + "&color=" + random.nextInt(numColors));
+        latencies[m] = System.nanoTime() - start;
+        if (!field(state, "won").equals("false") || !field(state, "lost").equals("false")) {
+          get(client, base + "/reset?id=" + id + "&seed=" + random.nextLong());
+        }
+      }
+      get(client, base + "/close?id=" + id);
+    }
+    catch (IOException e) {
+      return null;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    return latencies;
+  }
+
+  // to send a GET request to the given URL and return the body, failing
+  // unless the server answered it
+  static String get(HttpClient client, String url) throws IOException, InterruptedException {
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+        HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IOException(url + ": " + response.statusCode() + " " + response.body());
+    }
+    return response.body();
+  }
+
+  // to return the value of the given key in a line of key=value pairs
+  static String field(String state, String key) {
+    for (String pair : state.trim().split(" ")) {
+      if (pair.startsWith(key + "=")) {
+        return pair.substring(key.length() + 1);
+      }
+    }
+    return "";
+  }
+
+  // to return the given percentile of the given sorted latencies
+  static long percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+  }
+
+  // to load a server, started in this process unless a port is given, and
+  // print the move latencies, given as:
+  //   sessions moves [port] (defaults: 10000 sessions, 20 moves, in-process)
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    int moves = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    GameServer server = null;
+    int port;
+    if (args.length > 2) {
+      port = Integer.parseInt(args[2]);
+    }
+    else {
+      server = new GameServer(0);
+      server.start();
+      port = server.port();
+    }
+    long start = System.nanoTime();
+    LoadResult result = run(port, sessions, moves, 14, 6);
+    long[] latencies = result.latencies;
+    double seconds = (System.nanoTime() - start) / 1e9;
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.printf("%d moves in %d sessions, %.1f s%n", latencies.length, sessions, seconds);
+    System.out.printf("p50 %.3f ms, p99 %.3f ms over finished sessions, %d sessions failed%n",
+        percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+        result.failedSessions);
+    System.out.printf("%.0f sessions/core, %.0f moves/s/core%n", (double) sessions / cores,
+        latencies.length / seconds / cores);
+    if (server != null) {
+      server.stop();
+    }
+  }
+}
+
+// to represent a stored puzzle: the seed of its board, its palette, and
+// the shortest solution the solver found for it
+class Puzzle {
+  // content hash of the board and palette
+  long id;
+  int size;
+  int numColors;
+  long seed;
+  ArrayList<Color> palette;
+  // number of moves in the solution
+  int par;
+  int[] moves;
+
+  // constructor initializing a puzzle
+  Puzzle(long id, int size, int numColors, long seed, ArrayList<Color> palette, int[] moves) {
+    this.id = id;
+    this.size = size;
+    this.numColors = numColors;
+    this.seed = seed;
+    this.palette = palette;
+    this.par = moves.length;
+    this.moves = moves;
+  }
+
+  // to return the board of this puzzle
+  Board board() {
+    Board board = new Board(this.size, this.numColors);
+    board.fillRandom(this.seed);
+    board.resetRegion();
+    return board;
+  }
+
+  // to return a new world playing this puzzle
+  FloodItWorld world() {
+    return new FloodItWorld(new FloodItGame(this.board(), this.seed), this.palette);
+  }
+}
+
+// to store solved puzzles in a file for instant lookup by id. The file
+// holds an open-addressing hash table of (id, entry offset) slots,
+// followed by the entries; it is mapped once and probed in place, and
+// recently read puzzles are kept in an LRU cache.
+// Layout, big-endian:
+//   header: magic "FLPZ", version, number of slots (a power of two), number of puzzles
+//   slots:  id (long, 0 if empty), entry offset (long)
+//   entry:  size, colors, seed (long), par, palette (one RGB int per color), moves (a byte each)
+class PuzzleStore {
+  // "FLPZ"
+  static final int MAGIC = 0x464C505A;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+  static final int SLOT_BYTES = 16;
+  // number of puzzles kept in the cache
+  static final int CACHE_PUZZLES = 1024;
+  // number of states kept per depth when solving puzzles
+  static final int SOLVE_WIDTH = 32;
+  MappedByteBuffer buffer;
+  int slots;
+  int count;
+  LinkedHashMap<Long, Puzzle> cache;
+
+  // constructor initializing a store over the given mapped file
+  PuzzleStore(MappedByteBuffer buffer, int slots, int count) {
+    this.buffer = buffer;
+    this.slots = slots;
+    this.count = count;
+    this.cache = new LinkedHashMap<Long, Puzzle>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Puzzle> eldest) {
+        return this.size() > CACHE_PUZZLES;
+      }
+    };
+  }
+
+  // to return the content hash of the given board's cells and palette,
+  // never 0 (FNV-1a over the size, colors, cells and RGB values)
+  static long hash(Board board, ArrayList<Color> palette) {
+    long hash = 0xcbf29ce484222325L;
+    hash = (hash ^ board.size) * 0x100000001b3L;
+    hash = (hash ^ board.numColors) * 0x100000001b3L;
+    for (byte color : board.shownColors()) {
+      hash = (hash ^ color) * 0x100000001b3L;
+    }
+    for (Color color : palette) {
+      hash = (hash ^ color.getRGB()) * 0x100000001b3L;
+    }
+    return hash == 0 ? 1 : hash;
+  }
+
+  // to solve the board generated from the given seed, with the palette a
+  // world would draw from the same seed
+  static Puzzle solve(int size, int numColors, long seed) {
+    Board board = new Board(size, numColors);
+    board.fillRandom(seed);
+    board.resetRegion();
+    ArrayList<Color> palette = FloodItWorld.initColors(numColors, seed);
+    int[] moves = Solver.solve(ComponentGraph.of(board).stateOf(board), SOLVE_WIDTH);
+    return new Puzzle(hash(board, palette), size, numColors, seed, palette, moves);
+  }
+
+  // to solve the boards seeded firstSeed to firstSeed + count - 1 on
+  // every core and store them in the file at the given path
+  static void build(Path path, int size, int numColors, long firstSeed, int count)
+      throws IOException {
+    Puzzle[] puzzles = new Puzzle[count];
+    IntStream.range(0, count).parallel()
+        .forEach(i -> puzzles[i] = solve(size, numColors, firstSeed + i));
+    write(path, puzzles);
+  }
+
+  // to store the given puzzles in the file at the given path, keeping the
+  // first of any with the same id
+  static void write(Path path, Puzzle[] puzzles) throws IOException {
+    int slots = 2;
+    while (slots < 2 * puzzles.length) {
+      slots *= 2;
+    }
+    long length = HEADER_BYTES + (long) SLOT_BYTES * slots;
+    for (Puzzle puzzle : puzzles) {
+      length += 20 + 4L * puzzle.numColors + puzzle.moves.length;
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Too many puzzles for one store: " + puzzles.length);
+    }
+    Files.deleteIfExists(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      int mask = slots - 1;
+      int count = 0;
+      int offset = HEADER_BYTES + SLOT_BYTES * slots;
+      for (Puzzle puzzle : puzzles) {
+        int slot = (int) puzzle.id & mask;
+        while (buffer.getLong(HEADER_BYTES + SLOT_BYTES * slot) != 0
+            && buffer.getLong(HEADER_BYTES + SLOT_BYTES * slot) != puzzle.id) {
+          slot = (slot + 1) & mask;
+        }
+        if (buffer.getLong(HEADER_BYTES + SLOT_BYTES * slot) == 0) {
+          buffer.putLong(HEADER_BYTES + SLOT_BYTES * slot, puzzle.id);
+          buffer.putLong(HEADER_BYTES + SLOT_BYTES * slot + 8, offset);
+          buffer.position(offset);
+          buffer.putInt(puzzle.size);
+          buffer.putInt(puzzle.numColors);
+          buffer.putLong(puzzle.seed);
+          buffer.putInt(puzzle.par);
+          for (Color color : puzzle.palette) {
+            buffer.putInt(color.getRGB());
+          }
+          for (int move : puzzle.moves) {
+            buffer.put((byte) move);
+          }
+          offset = buffer.position();
+          count++;
+        }
+      }
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, slots);
+      buffer.putInt(12, count);
+      buffer.force();
+      // drop the space of the skipped duplicates
+      channel.truncate(offset);
+    }
+  }
+
+  // to open the store in the file at the given path
+  static PuzzleStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Not a puzzle store: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt(0) != MAGIC) {
+        throw new IOException("Not a puzzle store: " + path);
+      }
+      if (buffer.getInt(4) != VERSION) {
+        throw new IOException("Unsupported puzzle store version " + buffer.getInt(4) + ": "
+            + path);
+      }
+      int slots = buffer.getInt(8);
+      int count = buffer.getInt(12);
+      if (slots < 1 || Integer.bitCount(slots) != 1
+          || HEADER_BYTES + (long) SLOT_BYTES * slots > buffer.limit()
+          || count < 0 || count > slots) {
+        throw new IOException("Corrupt puzzle store: " + path);
+      }
+      return new PuzzleStore(buffer, slots, count);
+    }
+  }
+
+  // to return the puzzle with the given id, or null if it is not stored
+  Puzzle get(long id) throws IOException {
+    synchronized (this.cache) {
+      Puzzle cached = this.cache.get(id);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    Puzzle puzzle = this.read(id);
+    if (puzzle != null) {
+      synchronized (this.cache) {
+        this.cache.put(id, puzzle);
+      }
+    }
+    return puzzle;
+  }
+
+  // to find the puzzle with the given id in the file, or return null.
+  // Probes every slot at most once, so a table with no empty slot ends
+  Puzzle read(long id) throws IOException {
+    int mask = this.slots - 1;
+    int slot = (int) id & mask;
+    for (int probe = 0; probe < this.slots; probe++) {
+      long stored = this.buffer.getLong(HEADER_BYTES + SLOT_BYTES * slot);
+      if (stored == 0) {
+        return null;
+      }
+      if (stored == id) {
+        return this.readEntry(id, this.buffer.getLong(HEADER_BYTES + SLOT_BYTES * slot + 8));
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  // to read the entry of the puzzle with the given id at the given offset,
+  // checking that it lies after the slots and within the file and that its
+  // size, colors, par and moves are in range
+  Puzzle readEntry(long id, long offset) throws IOException {
+    if (offset < HEADER_BYTES + (long) SLOT_BYTES * this.slots
+        || offset + 20 > this.buffer.limit()) {
+      throw new IOException("Corrupt puzzle store entry: " + id);
+    }
+    int at = (int) offset;
+    int size = this.buffer.getInt(at);
+    int numColors = this.buffer.getInt(at + 4);
+    long seed = this.buffer.getLong(at + 8);
+    int par = this.buffer.getInt(at + 16);
+    if (size < 1 || size > Board.MAX_SIZE || numColors < 1 || numColors > Byte.MAX_VALUE
+        || par < 0 || offset + 20 + 4L * numColors + par > this.buffer.limit()) {
+      throw new IOException("Corrupt puzzle store entry: " + id);
+    }
+    ArrayList<Color> palette = new ArrayList<>();
+    for (int c = 0; c < numColors; c++) {
+      palette.add(new Color(this.buffer.getInt(at + 20 + 4 * c)));
+    }
+    int[] moves = new int[par];
+    for (int m = 0; m < par; m++) {
+      moves[m] = this.buffer.get(at + 20 + 4 * numColors + m);
+      if (moves[m] < 0 || moves[m] >= numColors) {
+        throw new IOException("Corrupt puzzle store entry: " + id);
+      }
+    }
+    return new Puzzle(id, size, numColors, seed, palette, moves);
+  }
+
+  // to return a new world playing the puzzle with the given id, or null
+  // if it is not stored
+  FloodItWorld world(long id) throws IOException {
+    Puzzle puzzle = this.get(id);
+    return puzzle == null ? null : puzzle.world();
+  }
+
+  // to build a store, given as: path size colors firstSeed count
+  // (defaults: puzzles.db, 1000 14x14 boards with 6 colors from seed 0),
+  // and print how long it took
+  public static void main(String[] args) throws IOException {
+    Path path = Path.of(args.length > 0 ? args[0] : "puzzles.db");
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+    int numColors = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+    long firstSeed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+    int count = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+    long start = System.nanoTime();
+    build(path, size, numColors, firstSeed, count);
+    PuzzleStore store = open(path);
+    System.out.printf("%d puzzles in %s, %.1f s%n", store.count, path,
+        (System.nanoTime() - start) / 1e9);
+  }
+}
+
+// to append games to a replay log file shared by many sessions. Each game
+// is one record, written with a single write under the log's lock so
+// records never interleave:
+//   int MAGIC, int size, int numColors, long seed, int moves, int endTick
+// then for every move its palette index as a byte and the seconds since
+// the previous move (the first since the start) as an unsigned varint.
+// Records are only ever appended, so a log can be read while it grows
+class ReplayLog {
+  // "FLRG"
+  static final int MAGIC = 0x464C5247;
+  static final int HEADER_BYTES = 28;
+  FileChannel channel;
+  // encoding buffer, grown to the largest record written
+  ByteBuffer buffer;
+
+  // constructor initializing a log appending to the given channel
+  ReplayLog(FileChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(4096);
+  }
+
+  // to open the log at the given path for appending, creating it if needed
+  static ReplayLog open(Path path) throws IOException {
+    return new ReplayLog(FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+  }
+
+  // to append the given moves, left at the given second of the game's clock
+  synchronized void append(MoveRecord record, int endTick) throws IOException {
+    int most = HEADER_BYTES + 6 * record.moves();
+    if (this.buffer.capacity() < most) {
+      this.buffer = ByteBuffer.allocate(Math.max(most, 2 * this.buffer.capacity()));
+    }
+    ByteBuffer buffer = this.buffer;
+    buffer.clear();
+    buffer.putInt(MAGIC);
+    buffer.putInt(record.size);
+    buffer.putInt(record.numColors);
+    buffer.putLong(record.seed);
+    buffer.putInt(record.moves());
+    buffer.putInt(endTick);
+    int previous = 0;
+    for (int i = 0; i < record.moves(); i++) {
+      buffer.put((byte) record.colors.get(i));
+      putVarint(buffer, record.ticks.get(i) - previous);
+      previous = record.ticks.get(i);
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer);
+    }
+  }
+
+  // to write the given non-negative value 7 bits at a time, low bits first
+  static void putVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  // to make sure the appended games are on disk
+  synchronized void flush() throws IOException {
+    this.channel.force(false);
+  }
+
+  // to close the log
+  synchronized void close() throws IOException {
+    this.channel.close();
+  }
+}
+
+// to represent what the games of one size and number of colors in a
+// replay log add up to
+class ReplayStats {
+  int size;
+  int numColors;
+  long games;
+  long wins;
+  long clicks;
+  // number of games ending with each number of clicks
+  long[] clickCounts;
+  // seconds from the start to the winning move, over every win
+  long winTicks;
+  long maxWinTicks;
+
+  // constructor initializing empty stats of the given configuration
+  ReplayStats(int size, int numColors) {
+    this.size = size;
+    this.numColors = numColors;
+    this.clickCounts = new long[16];
+  }
+
+  // to add a game that ended after the given clicks, won at the given
+  // second if it was won
+  void add(int clicks, boolean won, int winTick) {
+    this.games++;
+    this.clicks += clicks;
+    if (clicks >= this.clickCounts.length) {
+      this.clickCounts = Arrays.copyOf(this.clickCounts,
+          Math.max(clicks + 1, 2 * this.clickCounts.length));
+    }
+    this.clickCounts[clicks]++;
+    if (won) {
+      this.wins++;
+      this.winTicks += winTick;
+      this.maxWinTicks = Math.max(this.maxWinTicks, winTick);
+    }
+  }
+
+  // to return the fraction of games won
+  double winRate() {
+    return this.games == 0 ? 0.0 : (double) this.wins / this.games;
+  }
+
+  // to return the mean clicks of a game
+  double meanClicks() {
+    return this.games == 0 ? 0.0 : (double) this.clicks / this.games;
+  }
+
+  // to return the least number of clicks at least the given fraction of
+  // the games ended with
+  int clicksPercentile(double fraction) {
+    long target = (long) Math.ceil(fraction * this.games);
+    long seen = 0;
+    for (int c = 0; c < this.clickCounts.length; c++) {
+      seen += this.clickCounts[c];
+      if (seen >= Math.max(target, 1)) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  // to return the mean seconds from the start to the winning move
+  double meanTimeToWin() {
+    return this.wins == 0 ? 0.0 : (double) this.winTicks / this.wins;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%6d %6d %10d %8.3f %8.2f %6d %6d %10.1f %8d", this.size, this.numColors,
+        this.games, this.winRate(), this.meanClicks(), this.clicksPercentile(0.5),
+        this.clicksPercentile(0.9), this.meanTimeToWin(), this.maxWinTicks);
+  }
+}
+
+// to read replay logs front to back through a fixed buffer and replay
+// each game on a headless game, adding it to the stats of its size and
+// number of colors. Memory is bounded by the buffer and one board per
+// configuration, whatever the size of the log. The offset of the first
+// unread record of each log is kept, so calling update again on a log only
+// reads the games appended to it since; a record cut off at the end is
+// left for the next call
+class ReplayAnalyzer {
+  static final int BUFFER_BYTES = 1 << 20;
+  // stats and the game replayed on, per configuration
+  TreeMap<Long, ReplayStats> stats;
+  HashMap<Long, FloodItGame> games;
+  // offset of the first record not read yet, per log
+  HashMap<Path, Long> offsets;
+  ByteBuffer buffer;
+  FileChannel channel;
+
+  // constructor initializing an analyzer that has read nothing
+  ReplayAnalyzer() {
+    this.stats = new TreeMap<>();
+    this.games = new HashMap<>();
+    this.offsets = new HashMap<>();
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+  }
+
+  // to return the offset of the first record not read yet of the log at
+  // the given path
+  long offset(Path path) {
+    return this.offsets.getOrDefault(path.toAbsolutePath().normalize(), 0L);
+  }
+
+  // to read the complete records of the log at the given path from its
+  // offset on, returning the number of games read
+  int update(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    int read = 0;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      this.channel = channel.position(this.offset(key));
+      this.buffer.clear().flip();
+      while (this.fill(ReplayLog.HEADER_BYTES) && this.replay()) {
+        this.offsets.put(key, this.channel.position() - this.buffer.remaining());
+        read++;
+      }
+    }
+    finally {
+      this.channel = null;
+    }
+    return read;
+  }
+
+  // to replay the record at the front of the buffer, returning false if
+  // the log ends before the record does
+  boolean replay() throws IOException {
+    long start = this.channel.position() - this.buffer.remaining();
+    int magic = this.buffer.getInt();
+    int size = this.buffer.getInt();
+    int numColors = this.buffer.getInt();
+    long seed = this.buffer.getLong();
+    int moves = this.buffer.getInt();
+    int endTick = this.buffer.getInt();
+    if (magic != ReplayLog.MAGIC || size < 1 || size > Board.MAX_SIZE || numColors < 1
+        || numColors > 127 || moves < 0 || endTick < 0) {
+      throw new IOException("Corrupt replay log at byte " + start);
+    }
+    long key = (long) size << 32 | numColors;
+    FloodItGame game = this.games.get(key);
+    if (game == null) {
+      game = new FloodItGame(size, numColors, seed);
+      this.games.put(key, game);
+    }
+    else {
+      game.reset(seed);
+    }
+    boolean won = false;
+    int tick = 0;
+    int winTick = 0;
+    for (int i = 0; i < moves; i++) {
+      if (!this.fill(1)) {
+        return false;
+      }
+      int color = this.buffer.get();
+      int delta = this.varint();
+      if (delta < 0) {
+        return false;
+      }
+      if (color < 0 || color >= numColors) {
+        throw new IOException("Corrupt replay log at byte " + start);
+      }
+      tick += delta;
+      if (!won) {
+        game.play(color);
+        won = game.win();
+        winTick = tick;
+      }
+    }
+    ReplayStats config = this.stats.get(key);
+    if (config == null) {
+      config = new ReplayStats(size, numColors);
+      this.stats.put(key, config);
+    }
+    config.add(game.clicks, won, winTick);
+    return true;
+  }
+
+  // to read an unsigned varint, returning -1 if the log ends first
+  int varint() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (!this.fill(1)) {
+        return -1;
+      }
+      byte b = this.buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupt replay log: varint too long");
+  }
+
+  // to read until the buffer holds at least the given number of bytes,
+  // returning false if the log ends first
+  boolean fill(int bytes) throws IOException {
+    while (this.buffer.remaining() < bytes) {
+      this.buffer.compact();
+      int read = this.channel.read(this.buffer);
+      this.buffer.flip();
+      if (read < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // to return the stats of every configuration, one per line under a heading
+  String report() {
+    StringBuilder report = new StringBuilder(String.format(
+        "%6s %6s %10s %8s %8s %6s %6s %10s %8s%n", "size", "colors", "games", "winRate",
+        "clicks", "p50", "p90", "timeToWin", "maxTime"));
+    for (ReplayStats config : this.stats.values()) {
+      report.append(config).append(System.lineSeparator());
+    }
+    return report.toString();
+  }
+
+  // to analyze the replay logs at the given paths and print the stats:
+  //   java ReplayAnalyzer games.log [more.log ...]
+  public static void main(String[] args) throws IOException {
+    ReplayAnalyzer analyzer = new ReplayAnalyzer();
+    long start = System.nanoTime();
+    long games = 0;
+    for (String arg : args) {
+      games += analyzer.update(Path.of(arg));
+    }
+    System.out.print(analyzer.report());
+    System.out.printf("%d games in %.1f s%n", games, (System.nanoTime() - start) / 1e9);
+  }
+}
+
+// to draw a board into a backing raster with one pixel per cell (or the
+// block of pixels its topology asks for), scaled up to the tile size,
+// repainting only the cells changed since the last frame so an idle frame
+// costs the same on any board size
+class BoardRenderer {
+  ComputedPixelImage raster;
+  WorldImage image;
+  // board, generation and change count last drawn into the raster
+  Board board;
+  int generation;
+  int changes;
+  // [start, end) index ranges of cells to repaint on the next render
+  IntList pending;
+  // number of cells painted by the last render
+  int painted;
+
+  // constructor initializing a renderer that has drawn nothing yet
+  BoardRenderer() {
+    this.raster = null;
+    this.image = null;
+    this.board = null;
+    this.generation = 0;
+    this.changes = 0;
+    this.pending = new IntList();
+    this.painted = 0;
+  }
+
+  // to return the image of the given board with the given palette,
+  // with each cell drawn as a square of the given tile size
+  WorldImage render(Board board, ArrayList<Color> palette, int tileSize) {
+    if (board != this.board || board.generation != this.generation) {
+      int scale = board.topology.pixelsPerCell();
+      // shifted rows take up to one pixel less than a cell past the others
+      this.raster = new ComputedPixelImage(board.size * scale + scale - 1, board.height * scale);
+      this.image = new ScaleImage(this.raster, tileSize / scale);
+      this.painted = 0;
+      for (int i = 0; i < board.cellCount(); i++) {
+        this.paint(board, i, palette.get(board.colorAt(i)));
+      }
+    }
+    else if (board.changes != this.changes) {
+      // moves only change the color of the flooded region, the cells an
+      // undo takes out of it are in the pending ranges
+      this.painted = 0;
+      Color color = palette.get(board.floodColor);
+      for (int i = board.flooded.nextSetBit(0); i >= 0; i = board.flooded.nextSetBit(i + 1)) {
+        this.paint(board, i, color);
+      }
+      for (int r = 0; r < this.pending.size; r += 2) {
+        for (int i = this.pending.get(r); i < this.pending.get(r + 1); i++) {
+          this.paint(board, i, palette.get(board.colorAt(i)));
+        }
+      }
+    }
+    else {
+      this.painted = 0;
+    }
+    this.pending.clear();
+    this.board = board;
+    this.generation = board.generation;
+    this.changes = board.changes;
+    return this.image;
+  }
+
+  // to repaint the cells of the given [start, end) index ranges on the
+  // next render
+  void repaintLater(int[] ranges) {
+    for (int range : ranges) {
+      this.pending.add(range);
+    }
+  }
+
+  // to paint the pixels of the given cell with the given color
+  void paint(Board board, int index, Color color) {
+    int x = board.xOf(index);
+    int y = board.yOf(index);
+    int scale = board.topology.pixelsPerCell();
+    if (scale == 1) {
+      this.raster.setPixel(x, y, color);
+    }
+    else {
+      int left = x * scale + board.topology.rowShift(y);
+      for (int dx = 0; dx < scale; dx++) {
+        for (int dy = 0; dy < scale; dy++) {
+          this.raster.setPixel(left + dx, y * scale + dy, color);
+        }
+      }
+    }
+    this.painted++;
+  }
+}
+
+// to represent the window of a large board that is drawn: the cell at its
+// top-left corner and a zoom level. At level 0 and up each cell is drawn
+// as a square of 2^level pixels; below 0 each pixel covers a block of
+// 2^-level by 2^-level cells, starting on a multiple of the block size
+class Viewport {
+  // side of the drawn window, in pixels
+  static final int PIXELS = 800;
+  // most pixels per cell is 2^MAX_LEVEL
+  static final int MAX_LEVEL = 5;
+  int boardSize;
+  int level;
+  // lowest level, at which the whole board fits in the window
+  int minLevel;
+  int originX;
+  int originY;
+
+  // constructor initializing a viewport showing the whole given board
+  // at the highest level it fits at
+  Viewport(int boardSize) {
+    this.boardSize = boardSize;
+    this.minLevel = fitLevel(boardSize);
+    this.level = this.minLevel;
+    this.originX = 0;
+    this.originY = 0;
+  }
+
+  // to return the highest level at which a board of the given size fits
+  // in the window, at most MAX_LEVEL
+  static int fitLevel(int boardSize) {
+    int level = MAX_LEVEL;
+    while (level > 0 && (long) boardSize << level > PIXELS) {
+      level--;
+    }
+    while (level <= 0 && boardSize > PIXELS << -level) {
+      level--;
+    }
+    return level;
+  }
+
+  // to return the number of cells per side of a block drawn as one pixel
+  int cellsPerPixel() {
+    return this.level < 0 ? 1 << -this.level : 1;
+  }
+
+  // to return the number of pixels per side of a drawn cell
+  int pixelsPerCell() {
+    return this.level > 0 ? 1 << this.level : 1;
+  }
+
+  // to return the number of cells per side the window covers
+  int visibleCells() {
+    return Math.min(this.boardSize, PIXELS * this.cellsPerPixel() / this.pixelsPerCell());
+  }
+
+  // to move the window by the given fractions of its side, staying on the board
+  void scroll(double dx, double dy) {
+    this.moveTo(this.originX + (int) (dx * this.visibleCells()),
+        this.originY + (int) (dy * this.visibleCells()));
+  }
+
+  // to change the level by the given amount, keeping the cell at the
+  // center of the window in place
+  void zoom(int delta) {
+    int half = this.visibleCells() / 2;
+    int centerX = this.originX + half;
+    int centerY = this.originY + half;
+    this.level = Math.max(this.minLevel, Math.min(MAX_LEVEL, this.level + delta));
+    half = this.visibleCells() / 2;
+    this.moveTo(centerX - half, centerY - half);
+  }
+
+  // to put the top-left corner of the window at the given cell, as close
+  // as the board's edges and the block size allow
+  void moveTo(int x, int y) {
+    int most = this.boardSize - this.visibleCells();
+    int block = this.cellsPerPixel();
+    this.originX = Math.max(0, Math.min(most, x)) / block * block;
+    this.originY = Math.max(0, Math.min(most, y)) / block * block;
+  }
+
+  // to return the index of the cell under the given pixel of the window,
+  // or -1 if there is none
+  int cellAt(int px, int py) {
+    if (px < 0 || py < 0 || px >= PIXELS || py >= PIXELS) {
+      return -1;
+    }
+    int x = this.originX + px * this.cellsPerPixel() / this.pixelsPerCell();
+    int y = this.originY + py * this.cellsPerPixel() / this.pixelsPerCell();
+    return x < this.boardSize && y < this.boardSize ? x * this.boardSize + y : -1;
+  }
+}
+
+// to downsample the cells of a board for the zoomed-out levels of a
+// Viewport. Level k has a block for every 2^k by 2^k cells, holding the
+// index of one cell of the block: the representative of whichever of its
+// four sub-blocks shows the color most of them show, when the level is
+// built. This is a vote among representatives, an approximation of the
+// block's most common color rather than a count of its cells. A pixel is
+// drawn in the color its cell shows now, so the overview follows the
+// flooded region without being rebuilt; levels are built once per board,
+// the first time they are needed
+class Mipmap {
+  Board board;
+  int generation;
+  // representative cells of the blocks of levels 1, 2, ..., column by column
+  ArrayList<int[]> levels;
+
+  // constructor initializing an empty mipmap of the given board
+  Mipmap(Board board) {
+    this.board = board;
+    this.generation = board.generation;
+    this.levels = new ArrayList<>();
+  }
+
+  // to return the number of blocks per side at the given level
+  int blocks(int level) {
+    return (this.board.size + (1 << level) - 1) >> level;
+  }
+
+  // to return the representative cells of the given level (1 and up),
+  // building it and the levels below it if needed
+  int[] level(int level) {
+    while (this.levels.size() < level) {
+      this.levels.add(this.build(this.levels.size() + 1));
+    }
+    return this.levels.get(level - 1);
+  }
+
+  // to build the given level from the one below it (or from the cells)
+  int[] build(int level) {
+    int[] below = level == 1 ? null : this.levels.get(level - 2);
+    int belowBlocks = this.blocks(level - 1);
+    int blocks = this.blocks(level);
+    int[] reps = new int[blocks * blocks];
+    int[] children = new int[4];
+    for (int bx = 0; bx < blocks; bx++) {
+      for (int by = 0; by < blocks; by++) {
+        int count = 0;
+        for (int cx = 2 * bx; cx < Math.min(2 * bx + 2, belowBlocks); cx++) {
+          for (int cy = 2 * by; cy < Math.min(2 * by + 2, belowBlocks); cy++) {
+            int child = cx * belowBlocks + cy;
+            children[count] = below == null ? child : below[child];
+            count++;
+          }
+        }
+        reps[bx * blocks + by] = this.mostCommon(children, count);
+      }
+    }
+    return reps;
+  }
+
+  // to return the first of the given cells whose shown color is the most
+  // common among them
+  int mostCommon(int[] cells, int count) {
+    int best = cells[0];
+    int bestVotes = 0;
+    for (int i = 0; i < count; i++) {
+      int color = this.board.colorAt(cells[i]);
+      int votes = 0;
+      for (int j = 0; j < count; j++) {
+        if (this.board.colorAt(cells[j]) == color) {
+          votes++;
+        }
+      }
+      if (votes > bestVotes) {
+        best = cells[i];
+        bestVotes = votes;
+      }
+    }
+    return best;
+  }
+}
+
+// to draw the window of a board a Viewport shows, one raster pixel per
+// visible cell (scaled up to the cell size) or per block of cells at the
+// zoomed-out levels. Only the window is painted, so a frame costs at most
+// Viewport.PIXELS squared cells whatever the board size, and a frame in
+// which neither the board nor the window changed paints nothing
+class ViewportRenderer {
+  ComputedPixelImage raster;
+  WorldImage image;
+  Mipmap mipmap;
+  // pixels of the raster across and down, and pixels per raster pixel
+  int columns;
+  int rows;
+  int scale;
+  // board, change count and window last drawn
+  Board board;
+  int generation;
+  int changes;
+  int level;
+  int originX;
+  int originY;
+  // number of pixels painted by the last render
+  int painted;
+
+  // constructor initializing a renderer that has drawn nothing yet
+  ViewportRenderer() {
+    this.raster = null;
+    this.image = null;
+    this.mipmap = null;
+    this.columns = 0;
+    this.rows = 0;
+    this.scale = 0;
+    this.board = null;
+    this.painted = 0;
+  }
+
+  // to return the image of the window of the given board the given
+  // viewport shows, with the given palette
+  WorldImage render(Board board, ArrayList<Color> palette, Viewport viewport) {
+    if (board == this.board && board.generation == this.generation
+        && board.changes == this.changes && viewport.level == this.level
+        && viewport.originX == this.originX && viewport.originY == this.originY) {
+      this.painted = 0;
+      return this.image;
+    }
+    if (this.mipmap == null || this.mipmap.board != board
+        || this.mipmap.generation != board.generation) {
+      this.mipmap = new Mipmap(board);
+    }
+    int step = viewport.cellsPerPixel();
+    // one raster pixel per visible cell, or per block of cells
+    int columns = (Math.min(viewport.visibleCells(), board.size - viewport.originX) + step - 1)
+        / step;
+    int rows = (Math.min(viewport.visibleCells(), board.size - viewport.originY) + step - 1)
+        / step;
+    if (this.raster == null || columns != this.columns || rows != this.rows
+        || viewport.pixelsPerCell() != this.scale) {
+      this.raster = new ComputedPixelImage(columns, rows);
+      this.image = new ScaleImage(this.raster, viewport.pixelsPerCell());
+      this.columns = columns;
+      this.rows = rows;
+      this.scale = viewport.pixelsPerCell();
+    }
+    if (viewport.level >= 0) {
+      for (int px = 0; px < columns; px++) {
+        int row = (viewport.originX + px) * board.size + viewport.originY;
+        for (int py = 0; py < rows; py++) {
+          this.raster.setPixel(px, py, palette.get(board.colorAt(row + py)));
+        }
+      }
+    }
+    else {
+      int[] reps = this.mipmap.level(-viewport.level);
+      int blocks = this.mipmap.blocks(-viewport.level);
+      int firstX = viewport.originX / step;
+      int firstY = viewport.originY / step;
+      for (int px = 0; px < columns; px++) {
+        int row = (firstX + px) * blocks + firstY;
+        for (int py = 0; py < rows; py++) {
+          this.raster.setPixel(px, py, palette.get(board.colorAt(reps[row + py])));
+        }
+      }
+    }
+    this.painted = columns * rows;
+    this.board = board;
+    this.generation = board.generation;
+    this.changes = board.changes;
+    this.level = viewport.level;
+    this.originX = viewport.originX;
+    this.originY = viewport.originY;
+    return this.image;
+  }
+}
+
+// to represent a text image that is only rebuilt when its text changes
+class CachedText {
+  String text;
+  double size;
+  TextImage image;
+
+  // constructor initializing an empty cache
+  CachedText() {
+    this.text = null;
+    this.size = 0;
+    this.image = null;
+  }
+
+  // to return the image of the given text, reusing the last one if the
+  // text and size are unchanged
+  TextImage get(String text, double size, Color color) {
+    if (this.image == null || !text.equals(this.text) || this.size != size) {
+      this.text = text;
+      this.size = size;
+      this.image = new TextImage(text, size, color);
+    }
+    return this.image;
+  }
+}
+
+// to save and load Flood It games in a compact, versioned binary format:
+// a header (size, numColors, seed, clicks, maxTries, elapsedTime and the
+// palette as RGB ints) followed by the color of every cell, packed two per
+// byte when there are at most 16 colors. The file is read and written
+// through memory-mapped regions, so a board loads straight into its color
+// array without creating an object per cell.
+class SaveFile {
+  // "FLIT"
+  static final int MAGIC = 0x464C4954;
+  static final int VERSION = 1;
+  // size of the header before the palette
+  static final int HEADER_BYTES = 48;
+  // largest region of the file mapped at once
+  static final int CHUNK_BYTES = 1 << 26;
+
+  // to return the number of bits used for each cell with the given number of colors
+  static int bitsPerCell(int numColors) {
+    return numColors <= 16 ? 4 : 8;
+  }
+
+  // to return the number of bytes holding the given number of cells
+  static long payloadBytes(int cells, int bitsPerCell) {
+    return bitsPerCell == 4 ? (cells + 1L) / 2 : cells;
+  }
+
+  // to save the given world to the file at the given path
+  static void save(FloodItWorld world, Path path) throws IOException {
+    write(world.game, world.colors, path);
+  }
+
+  // to load the world saved in the file at the given path
+  static FloodItWorld load(Path path) throws IOException {
+    ArrayList<Color> palette = new ArrayList<>();
+    FloodItWorld world = new FloodItWorld(read(path, palette), palette);
+    world.updateMessage();
+    return world;
+  }
+
+  // to write the given game, drawn with the given palette, to the file at
+  // the given path, replacing it if it exists
+  static void write(FloodItGame game, ArrayList<Color> palette, Path path) throws IOException {
+    Board board = game.board;
+    if (!board.topology.isGrid() || board.height != board.size) {
+      throw new IllegalArgumentException("only square grids can be saved");
+    }
+    int bits = bitsPerCell(game.numColors);
+    int headerBytes = HEADER_BYTES + 4 * game.numColors;
+    long payloadBytes = payloadBytes(board.cellCount(), bits);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(game.size);
+      header.putInt(game.numColors);
+      header.putInt(bits);
+      header.putLong(game.seed);
+      header.putInt(game.clicks);
+      header.putInt(game.maxTries);
+      header.putDouble(game.elapsedTime);
+      // reserved
+      header.putInt(0);
+      for (Color color : palette) {
+        header.putInt(color.getRGB());
+      }
+      header.force();
+      for (long start = 0; start < payloadBytes; start += CHUNK_BYTES) {
+        int length = (int) Math.min(CHUNK_BYTES, payloadBytes - start);
+        MappedByteBuffer chunk =
+            channel.map(FileChannel.MapMode.READ_WRITE, headerBytes + start, length);
+        for (int i = 0; i < length; i++) {
+          chunk.put(packByte(board, bits, start + i));
+        }
+        chunk.force();
+      }
+    }
+  }
+
+  // to return the given byte of the payload of the given board
+  static byte packByte(Board board, int bits, long position) {
+    if (bits == 8) {
+      return (byte) board.colorAt((int) position);
+    }
+    int first = (int) (2 * position);
+    int second = first + 1 < board.cellCount() ? board.colorAt(first + 1) : 0;
+    return (byte) (board.colorAt(first) << 4 | second);
+  }
+
+  // to read the game saved in the file at the given path, adding its
+  // palette to the given list
+  static FloodItGame read(Path path, ArrayList<Color> palette) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        throw new IOException("Not a Flood It save file: " + path);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a Flood It save file: " + path);
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported save file version " + version + ": " + path);
+      }
+      int size = header.getInt();
+      int numColors = header.getInt();
+      int bits = header.getInt();
+      long seed = header.getLong();
+      int clicks = header.getInt();
+      int maxTries = header.getInt();
+      double elapsedTime = header.getDouble();
+      // checked before they size anything, as palette indices are bytes
+      if (size < 1 || size > Board.MAX_SIZE || numColors < 1 || numColors > Byte.MAX_VALUE) {
+        throw new IOException("Corrupt save file: " + path);
+      }
+      int headerBytes = HEADER_BYTES + 4 * numColors;
+      long payloadBytes = payloadBytes(size * size, bits);
+      if (bits != bitsPerCell(numColors) || channel.size() != headerBytes + payloadBytes) {
+        throw new IOException("Corrupt save file: " + path);
+      }
+      MappedByteBuffer colors =
+          channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * numColors);
+      for (int c = 0; c < numColors; c++) {
+        palette.add(new Color(colors.getInt()));
+      }
+      Board board = new Board(size, numColors);
+      for (long start = 0; start < payloadBytes; start += CHUNK_BYTES) {
+        int length = (int) Math.min(CHUNK_BYTES, payloadBytes - start);
+        MappedByteBuffer chunk =
+            channel.map(FileChannel.MapMode.READ_ONLY, headerBytes + start, length);
+        for (int i = 0; i < length; i++) {
+          unpackByte(board, bits, start + i, chunk.get());
+        }
+      }
+      // the flooded region is the component of the top-left cell, which
+      // keeps the saved flood color
+      board.resetRegion();
+      FloodItGame game = new FloodItGame(board, seed);
+      game.clicks = clicks;
+      game.maxTries = maxTries;
+      game.elapsedTime = elapsedTime;
+      return game;
+    }
+  }
+
+  // to store the cells of the given byte of a payload in the given board
+  static void unpackByte(Board board, int bits, long position, byte packed)
+      throws IOException {
+    if (bits == 8) {
+      checkColor(board, packed);
+      board.colors.set((int) position, packed);
+    }
+    else {
+      int first = (int) (2 * position);
+      checkColor(board, packed >> 4 & 15);
+      board.colors.set(first, (byte) (packed >> 4 & 15));
+      if (first + 1 < board.cellCount()) {
+        checkColor(board, packed & 15);
+        board.colors.set(first + 1, (byte) (packed & 15));
+      }
+    }
+  }
+
+  // to check that the given palette index is valid on the given board
+  static void checkColor(Board board, int color) throws IOException {
+    if (color < 0 || color >= board.numColors) {
+      throw new IOException("Corrupt save file: color " + color + " out of range");
+    }
+  }
+}
+
+// to represent a FloodItWorld State
+class FloodItWorld extends World {
+  // memory kept for undoing moves
+  static final long UNDO_BUDGET_BYTES = 16 << 20;
+  // pixels per cell when the whole board is drawn
+  static final int TILE_SIZE = 20;
+  // pixels between the window's edge and the board
+  static final int MARGIN = 5;
+  // the game being played
+  FloodItGame game;
+  // list of colors
+  ArrayList<Color> colors;
+  String message;
+  // cached images of the board and the footer texts
+  BoardRenderer renderer;
+  CachedText messageText;
+  CachedText restartText;
+  CachedText clicksText;
+  CachedText timeText;
+  // window of the board drawn, and its renderer, for boards too large to
+  // draw whole at TILE_SIZE; both null otherwise
+  Viewport viewport;
+  ViewportRenderer viewRenderer;
+
+  // constructor initializing the game based on the
+  // given size the given number of colors in this game
+  FloodItWorld(int size, int numColors) {
+    this(size, numColors, new Random().nextLong());
+  }
+
+  // constructor initializing the game based on the given size and number
+  // of colors, with the palette and board drawn from the given seed so the
+  // game can be replayed
+  FloodItWorld(int size, int numColors, long seed) {
+    this(new SquareTopology(size, size), numColors, seed);
+  }
+
+  // constructor initializing the game on boards of the given topology
+  // and number of colors, with the palette and board drawn from the given seed
+  FloodItWorld(Topology topology, int numColors, long seed) {
+    this(new FloodItGame(topology, numColors, seed), new ArrayList<>());
+    this.colors = initColors(numColors, seed);
+  }
+
+  // constructor initializing a world that draws the given game
+  // with the given palette
+  FloodItWorld(FloodItGame game, ArrayList<Color> colors) {
+    this.colors = colors;
+    this.game = game;
+    this.game.enableUndo(UNDO_BUDGET_BYTES);
+    this.message = "";
+    this.renderer = new BoardRenderer();
+    this.messageText = new CachedText();
+    this.restartText = new CachedText();
+    this.clicksText = new CachedText();
+    this.timeText = new CachedText();
+    // the viewport draws one pixel per cell of a board with as many rows as
+    // columns: square, eight-neighbor and torus boards, but not hex ones
+    if ((long) game.size * TILE_SIZE > Viewport.PIXELS && game.board.height == game.size
+        && game.board.topology.pixelsPerCell() == 1) {
+      this.viewport = new Viewport(game.size);
+      this.viewRenderer = new ViewportRenderer();
+    }
+    else {
+      this.viewport = null;
+      this.viewRenderer = null;
+    }
+  }
+
+  // to return the width of the drawn board, in pixels
+  int boardWidth() {
+    if (this.viewport != null) {
+      return Viewport.PIXELS;
+    }
+    // shifted rows stick out by part of a tile
+    int scale = this.game.board.topology.pixelsPerCell();
+    return this.game.size * TILE_SIZE + (scale - 1) * TILE_SIZE / scale;
+  }
+
+  // to return the height of the drawn board, in pixels
+  int boardHeight() {
+    return this.viewport == null ? this.game.board.height * TILE_SIZE : Viewport.PIXELS;
+  }
+
+  // to return an ArrayList of color objects that's the size
+  // of the given integer "size", drawn from the given seed
+  static ArrayList<Color> initColors(int numColors, long seed) {
+    Random random = new Random(seed);
+    ArrayList<Color> colors = new ArrayList<>();
+    for (int i = 0; i < numColors; i++) {
+      // 16777216 is the largest number that can represent an RGB color
+      colors.add(new Color(random.nextInt(16777216)));
+    }
+    return colors;
+  }
+
+  // to return the color of the cell at the given index
+  Color colorOf(int index) {
+    return this.colors.get(this.game.board.colorAt(index));
+  }
+
+  // On key method to reset the game using 'r' key, undo and redo moves
+  // using 'u' and 'y' keys, or let the solver make the next move using 'h' key.
+  // On large boards the arrow keys scroll and '+' / '-' zoom in and out
+  @Override
+  public void onKeyEvent(String key) {
+    if (this.viewport != null && this.onViewportKey(key)) {
+      return;
+    }
+    if (key.equals("r")) {
+      this.reset();
+    }
+    else if (key.equals("u")) {
+      UndoEntry entry = this.game.undo();
+      if (entry != null) {
+        // a viewport repaints its window, and never renders the board whole
+        if (this.viewport == null) {
+          this.renderer.repaintLater(entry.ranges);
+        }
+        this.updateMessage();
+      }
+    }
+    else if (key.equals("y") && this.game.redo()) {
+      this.updateMessage();
+    }
+    else if (key.equals("h") && !this.game.win()) {
+      // 100 milliseconds is short enough not to stall the window
+      this.game.play(this.game.hint(100000000).color);
+      this.updateMessage();
+    }
+  }
+
+  // to scroll or zoom the viewport for the given key, returning whether
+  // the key was one of the viewport's
+  boolean onViewportKey(String key) {
+    switch (key) {
+      case "left":
+        this.viewport.scroll(-0.25, 0);
+        return true;
+      case "right":
+        this.viewport.scroll(0.25, 0);
+        return true;
+      case "up":
+        this.viewport.scroll(0, -0.25);
+        return true;
+      case "down":
+        this.viewport.scroll(0, 0.25);
+        return true;
+      case "+":
+      case "=":
+        this.viewport.zoom(1);
+        return true;
+      case "-":
+        this.viewport.zoom(-1);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // Resets the board
+  public void reset() {
+    this.reset(new Random().nextLong());
+  }
+
+  // Resets the board to the one drawn from the given seed, keeping the palette
+  public void reset(long seed) {
+    this.game.reset(seed);
+    this.message = "";
+  }
+
+  // Method to change the board when the mouse clicks on a cell.
+  // Floods with color of the cell that the mouse clicked on
+  @Override
+  public void onMouseClicked(Posn pos) {
+    if (this.viewport != null) {
+      int clickedCell = this.viewport.cellAt(pos.x - MARGIN, pos.y - MARGIN);
+      if (clickedCell >= 0) {
+        this.game.play(this.game.board.colorAt(clickedCell));
+        this.updateMessage();
+      }
+      return;
+    }
+    int clickedCell =
+        this.game.board.topology.cellAtPixel(pos.x - MARGIN, pos.y - MARGIN, TILE_SIZE);
+    if (clickedCell >= 0) {
+      this.game.play(this.game.board.colorAt(clickedCell));
+      this.updateMessage();
+    }
+  }
+
+  // Check if the game is won or lost and set the message.
+  void updateMessage() {
+    if (this.game.win()) {
+      this.message = "Congrats! You won!";
+    }
+    else if (this.game.lose()) {
+      this.message = "Oh no, you lost!";
+    }
+    else {
+      this.message = "";
+    }
+  }
+
+  // to handle rounding errors for more precise clicking
+  public int roundNumber(double n) {
+    int casted = (int) n;
+    if (n - casted >= 0.50) {
+      return casted + 1;
+    }
+    else {
+      return casted;
+    }
+  }
+
+  // to handle the timer's elapsed time with onTick()
+  @Override
+  public void onTick() {
+    this.game.tick();
+  }
+
+  // to initialize a new FloodItWorld with the give size and
+  // place each cell in this FloodItWorld's board
+  @Override
+  public WorldScene makeScene() {
+    if (!Metrics.active) {
+      return this.drawScene();
+    }
+    MakeSceneEvent event = Metrics.recording ? new MakeSceneEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    long start = System.nanoTime();
+    WorldScene scene = this.drawScene();
+    if (Metrics.enabled) {
+      Metrics.MAKE_SCENE.record(System.nanoTime() - start);
+    }
+    if (event != null && event.shouldCommit()) {
+      event.size = this.game.size;
+      event.cellsPainted =
+          this.viewport == null ? this.renderer.painted : this.viewRenderer.painted;
+      event.commit();
+    }
+    return scene;
+  }
+
+  // to draw the board, the win/loss message, the clicks and the time
+  WorldScene drawScene() {
+    int buffer = 10;
+    int tileSize = 20;
+    int footerConst = 50;
+    int alignTilesConstant = (tileSize * 3) / 4;
+    int boardWidth = this.boardWidth();
+    int boardHeight = this.boardHeight();
+    WorldScene scene = new WorldScene(boardWidth + buffer, boardHeight + footerConst);
+    if (this.viewport != null) {
+      WorldImage window = this.viewRenderer.render(this.game.board, this.colors, this.viewport);
+      // the raster is centered on the part of the window it covers
+      scene.placeImageXY(window,
+          MARGIN + this.viewRenderer.columns * this.viewRenderer.scale / 2,
+          MARGIN + this.viewRenderer.rows * this.viewRenderer.scale / 2);
+    }
+    else if (this.game.board.cellCount() > 0) {
+      // the raster is centered on the board, which starts half a tile before the first cell
+      int offset = alignTilesConstant - tileSize / 2;
+      scene.placeImageXY(this.renderer.render(this.game.board, this.colors, tileSize),
+          offset + boardWidth / 2, offset + boardHeight / 2);
+    }
+
+    double sizingConst = boardWidth / (double) tileSize * 1.5;
+    String restartMsg = "Press 'r' to restart.";
+
+    // Display the win/loss message if it exists
+    if (!this.message.isEmpty()) {
+      scene.placeImageXY(
+          new OverlayOffsetImage(
+              this.messageText.get(this.message, Math.max(sizingConst, 7.5), Color.RED), 0.0,
+              boardWidth / tileSize * 2,
+              this.restartText.get(restartMsg, Math.max(sizingConst, 7.5), Color.RED)),
+          boardWidth / 2, boardHeight / 2);
+    }
+
+    // E.C: Added a score tracker!
+    scene.placeImageXY(
+        this.clicksText.get("Clicks: " + this.game.clicks + "/" + this.game.maxTries,
+            pickFontSize(sizingConst), Color.BLACK),
+        (boardWidth / 4), boardHeight + footerConst / 2);
+
+    // E.C: Displayed the elapsed time!
+    scene.placeImageXY(
+        this.timeText.get("Time: " + (int) this.game.elapsedTime + "s",
+            pickFontSize(sizingConst), Color.BLACK),
+        (boardWidth * 3 / 4), boardHeight + footerConst / 2);
+
+    return scene;
+  }
+
+  // to pick the font size value for the score tracker and timer based on the
+  // sizingConst
+  public int pickFontSize(double sizingConst) {
+    if (sizingConst < 10) {
+      return 10;
+    }
+    else {
+      return (int) Math.min(sizingConst, 15);
+    }
+  }
+}
+
+// to represent a move recorded by Flight Recorder
+@Name("floodit.Flood")
+@Label("Flood")
+@Category("Flood It")
+@Description("One move: the cells it recolored and the neighbor cells it looked at")
+class FloodEvent extends Event {
+  @Label("Board Size")
+  int size;
+  @Label("Color")
+  int color;
+  @Label("Cells Recolored")
+  int cellsRecolored;
+  @Label("Cells Visited")
+  int cellsVisited;
+  @Label("Flooded Cells")
+  int floodedCount;
+}
+
+// to represent a new board being generated, recorded by Flight Recorder
+@Name("floodit.CreateBoard")
+@Label("Create Board")
+@Category("Flood It")
+class CreateBoardEvent extends Event {
+  @Label("Board Size")
+  int size;
+  @Label("Colors")
+  int numColors;
+  @Label("Seed")
+  long seed;
+}
+
+// to represent a frame being drawn, recorded by Flight Recorder
+@Name("floodit.MakeScene")
+@Label("Make Scene")
+@Category("Flood It")
+class MakeSceneEvent extends Event {
+  @Label("Board Size")
+  int size;
+  @Label("Cells Painted")
+  int cellsPainted;
+}
+
+// to count durations in power-of-two nanosecond buckets, safe to record
+// into from many threads at once
+class LatencyHistogram {
+  String name;
+  // bucket b counts durations in [2^(b-1), 2^b) ns, bucket 0 counts 0 ns
+  AtomicLongArray buckets;
+  LongAdder count;
+  LongAdder totalNanos;
+  AtomicLong maxNanos;
+
+  // constructor initializing an empty histogram with the given name
+  LatencyHistogram(String name) {
+    this.name = name;
+    this.buckets = new AtomicLongArray(65);
+    this.count = new LongAdder();
+    this.totalNanos = new LongAdder();
+    this.maxNanos = new AtomicLong();
+  }
+
+  // to count one duration of the given number of nanoseconds
+  void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+    this.count.increment();
+    this.totalNanos.add(nanos);
+    this.maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  // to return the number of durations counted
+  long count() {
+    return this.count.sum();
+  }
+
+  // to return an upper bound on the given fraction of the durations
+  // counted, or 0 if there are none
+  long percentile(double p) {
+    long rank = (long) Math.ceil(p * this.count());
+    long seen = 0;
+    for (int b = 0; b < this.buckets.length(); b++) {
+      seen += this.buckets.get(b);
+      if (seen >= rank && seen > 0) {
+        return Math.min(b == 0 ? 0 : (1L << b) - 1, this.maxNanos.get());
+      }
+    }
+    return 0;
+  }
+
+  // to forget every duration counted
+  void clear() {
+    for (int b = 0; b < this.buckets.length(); b++) {
+      this.buckets.set(b, 0);
+    }
+    this.count.reset();
+    this.totalNanos.reset();
+    this.maxNanos.set(0);
+  }
+
+  // to return the count and the mean, p50, p99 and max durations in microseconds
+  public String toString() {
+    long count = this.count();
+    return String.format("%-12s count %d, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+        this.name, count, count == 0 ? 0.0 : this.totalNanos.sum() / 1e3 / count,
+        this.percentile(0.50) / 1e3, this.percentile(0.99) / 1e3, this.maxNanos.get() / 1e3);
+  }
+}
+
+// to keep in-process latency histograms and counters for the game hot
+// paths, and to tell them when to emit Flight Recorder events. Everything
+// is off unless the floodit.metrics system property is true, metrics are
+// enabled, or a recording is running, so that the hot paths only pay for
+// reading the active flag
+class Metrics {
+  // whether the hot paths measure themselves at all
+  static volatile boolean active;
+  // whether they record into the histograms and counters
+  static volatile boolean enabled;
+  // whether a Flight Recorder recording is running
+  static volatile boolean recording;
+
+  static final LatencyHistogram FLOOD = new LatencyHistogram("flood");
+  static final LatencyHistogram CREATE_BOARD = new LatencyHistogram("createBoard");
+  static final LatencyHistogram MAKE_SCENE = new LatencyHistogram("makeScene");
+  static final LongAdder CELLS_RECOLORED = new LongAdder();
+  static final LongAdder CELLS_VISITED = new LongAdder();
+  static final LongAdder WIN_CHECKS = new LongAdder();
+  static final LongAdder WINS = new LongAdder();
+
+  static {
+    if (Boolean.getBoolean("floodit.metrics")) {
+      enable(true);
+      dumpOnExit();
+    }
+    if (FlightRecorder.isAvailable()) {
+      FlightRecorder.addListener(new FlightRecorderListener() {
+        public void recorderInitialized(FlightRecorder recorder) {
+          Metrics.updateRecording();
+        }
+
+        public void recordingStateChanged(Recording changed) {
+          Metrics.updateRecording();
+        }
+      });
+    }
+  }
+
+  // to turn the histograms and counters on or off
+  static void enable(boolean on) {
+    enabled = on;
+    active = enabled || recording;
+  }
+
+  // to find out whether a Flight Recorder recording is running
+  static void updateRecording() {
+    boolean running = false;
+    for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+      running = running || r.getState() == RecordingState.RUNNING;
+    }
+    recording = running;
+    active = enabled || recording;
+  }
+
+  // to forget everything recorded so far
+  static void clear() {
+    FLOOD.clear();
+    CREATE_BOARD.clear();
+    MAKE_SCENE.clear();
+    CELLS_RECOLORED.reset();
+    CELLS_VISITED.reset();
+    WIN_CHECKS.reset();
+    WINS.reset();
+  }
+
+  // to return the histograms and counters, one per line
+  static String report() {
+    return FLOOD + "\n" + CREATE_BOARD + "\n" + MAKE_SCENE + "\n"
+        + "cellsRecolored " + CELLS_RECOLORED.sum() + "\n"
+        + "cellsVisited " + CELLS_VISITED.sum() + "\n"
+        + "winChecks " + WIN_CHECKS.sum() + ", wins " + WINS.sum() + "\n";
+  }
+
+  // to print the report to standard error when the JVM exits
+  static void dumpOnExit() {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report())));
+  }
+}
+
+// to represent one operation to measure, with its setup kept out of the timing
+abstract class BenchCase {
+  String name;
+  int size;
+  int numColors;
+
+  // constructor initializing the name of this case
+  BenchCase(String name) {
+    this.name = name;
+  }
+
+  // to prepare the state shared by every run of this case
+  void setup(int size, int numColors) {
+    this.size = size;
+    this.numColors = numColors;
+  }
+
+  // to check if prepare() has to run before every run of this case
+  boolean perInvocation() {
+    return false;
+  }
+
+  // to prepare a fresh state for the next run, outside the timing
+  void prepare() {
+  }
+
+  // to run the measured operation once, returning a value so it
+  // cannot be optimized away
+  abstract long run();
+}
+
+// to measure a single flood at a point of the game where greedy play
+// has flooded the given fraction of a board of the named topology
+class FloodCase extends BenchCase {
+  double phase;
+  String topology;
+  Board snapshot;
+  Board board;
+  int color;
+
+  // constructor initializing a flood case at the given phase on a square grid
+  FloodCase(String name, double phase) {
+    this(name, phase, "square");
+  }
+
+  // constructor initializing a flood case at the given phase on the
+  // named topology
+  FloodCase(String name, double phase, String topology) {
+    super(name);
+    this.phase = phase;
+    this.topology = topology;
+  }
+
+  @Override
+  void setup(int size, int numColors) {
+    super.setup(size, numColors);
+    FloodItGame game = new FloodItGame(Topology.named(this.topology, size, size), numColors, 1);
+    GreedyStrategy greedy = new GreedyStrategy();
+    while (!game.win() && game.board.floodedCount < this.phase * game.board.cellCount()) {
+      game.play(greedy.choose(game.view, null));
+    }
+    this.snapshot = game.board;
+    this.color = greedy.choose(game.view, null);
+  }
+
+  @Override
+  boolean perInvocation() {
+    return true;
+  }
+
+  @Override
+  void prepare() {
+    this.board = this.snapshot.copy();
+  }
+
+  long run() {
+    return this.board.flood(this.color);
+  }
+}
+
+// to measure a scan of every cell of a board where greedy play has
+// flooded half of it, run with the scan CellScan.INSTANCE picked
+abstract class ScanCase extends BenchCase {
+  Board board;
+  // a mask without any cells
+  long[] noCells = new long[0];
+
+  // constructor initializing the name of this case
+  ScanCase(String name) {
+    super(name);
+  }
+
+  @Override
+  void setup(int size, int numColors) {
+    super.setup(size, numColors);
+    FloodItGame game = new FloodItGame(size, numColors, 1);
+    GreedyStrategy greedy = new GreedyStrategy();
+    while (!game.win() && game.board.floodedCount < game.board.cellCount() / 2) {
+      game.play(greedy.choose(game.view, null));
+    }
+    this.board = game.board;
+  }
+}
+
+// to represent the measured cost of a benchmark case
+class BenchScore {
+  long ops;
+  long nanos;
+  long bytes;
+
+  // constructor initializing the totals of a measurement
+  BenchScore(long ops, long nanos, long bytes) {
+    this.ops = ops;
+    this.nanos = nanos;
+    this.bytes = bytes;
+  }
+
+  // to return the average time of one run
+  double nanosPerOp() {
+    return (double) this.nanos / this.ops;
+  }
+
+  // to return the average number of bytes allocated by one run
+  double bytesPerOp() {
+    return (double) this.bytes / this.ops;
+  }
+
+  // to return the allocation rate in megabytes per second
+  double allocationRate() {
+    return this.nanos == 0 ? 0.0 : this.bytes * 1e3 / this.nanos;
+  }
+}
+
+// Benchmarks for the game hot paths, run as:
+//   java FloodBench [name regex] [sizes] [colors]
+// e.g. java FloodBench "flood.*" 10,1000,4096 3,26
+// Each case is warmed up, then run for a fixed time; the report gives the
+// time and the bytes allocated per run (from the thread allocation counter)
+// and the allocation rate. makeScene needs javalib on the class path.
+// The scan cases use the vector unit when run with
+// --add-modules jdk.incubator.vector and simd/VectorCellScan.java compiled
+// in, and scalar loops with -Dfloodit.vector=false.
+class FloodBench {
+  static final long WARMUP_NANOS = 500000000L;
+  static final long MEASURE_NANOS = 1000000000L;
+  // runs are timed in batches of at least this long when they need no preparation
+  static final long BATCH_NANOS = 1000000L;
+  // keeps the results of the runs alive
+  static volatile long sink;
+
+  // to return every benchmark case
+  static ArrayList<BenchCase> cases() {
+    ArrayList<BenchCase> cases = new ArrayList<>();
+    cases.add(new BenchCase("createBoard") {
+      FloodItGame game;
+      long seed;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.game = new FloodItGame(size, numColors, 0);
+      }
+
+      long run() {
+        this.seed++;
+        return this.game.createBoard(this.seed).floodedCount;
+      }
+    });
+    cases.add(new FloodCase("flood.early", 0.0));
+    cases.add(new FloodCase("flood.mid", 0.5));
+    cases.add(new FloodCase("flood.late", 0.9));
+    cases.add(new FloodCase("flood.mid.eight", 0.5, "eight"));
+    cases.add(new FloodCase("flood.mid.hex", 0.5, "hex"));
+    cases.add(new FloodCase("flood.mid.torus", 0.5, "torus"));
+    cases.add(new BenchCase("fullGame") {
+      GreedyStrategy greedy = new GreedyStrategy();
+      long seed;
+
+      long run() {
+        this.seed++;
+        return BatchRunner.playOut(this.size, this.numColors, this.greedy, this.seed).clicks;
+      }
+    });
+    cases.add(new BenchCase("win") {
+      FloodItGame game;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.game = new FloodItGame(size, numColors, 0);
+      }
+
+      long run() {
+        return this.game.win() ? 1 : 0;
+      }
+    });
+    cases.add(new BenchCase("reset") {
+      FloodItGame game;
+      long seed;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.game = new FloodItGame(size, numColors, 0);
+      }
+
+      long run() {
+        this.seed++;
+        this.game.reset(this.seed);
+        return this.game.board.floodedCount;
+      }
+    });
+    cases.add(new BenchCase("makeScene") {
+      FloodItWorld world;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.world = new FloodItWorld(size, numColors);
+      }
+
+      long run() {
+        return this.world.makeScene().width;
+      }
+    });
+    cases.add(new BenchCase("components.sequential") {
+      Board board;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.board = new FloodItGame(size, numColors, 0).board;
+      }
+
+      long run() {
+        return new ComponentGraph(this.board).count;
+      }
+    });
+    cases.add(new BenchCase("components.parallel") {
+      Board board;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        this.board = new FloodItGame(size, numColors, 0).board;
+      }
+
+      long run() {
+        return ComponentLabeler.label(this.board).count;
+      }
+    });
+    cases.add(new BenchCase("par") {
+      long seed;
+
+      long run() {
+        this.seed++;
+        return BoardGenerator.par(this.size, this.numColors, this.seed);
+      }
+    });
+    cases.add(new ScanCase("scan.uniform") {
+      CellStore uniform;
+
+      @Override
+      void setup(int size, int numColors) {
+        super.setup(size, numColors);
+        // a uniform board is the worst case, every cell is compared
+        this.uniform = Board.storeFor(size);
+      }
+
+      long run() {
+        return this.uniform.allEqual(this.noCells, (byte) 0) ? 1 : 0;
+      }
+    });
+    cases.add(new ScanCase("scan.counts") {
+      long run() {
+        return this.board.colorCounts()[0];
+      }
+    });
+    cases.add(new ScanCase("scan.fill") {
+      long run() {
+        return this.board.shownColors()[0];
+      }
+    });
+    return cases;
+  }
+
+  // to run the given case for about the given time and return its totals
+  static BenchScore measure(BenchCase bench, long duration) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long ops = 0;
+    long nanos = 0;
+    long bytes = 0;
+    long batch = 1;
+    long end = System.nanoTime() + duration;
+    while (ops == 0 || System.nanoTime() < end) {
+      if (bench.perInvocation()) {
+        bench.prepare();
+        batch = 1;
+      }
+      long allocated = threads.getCurrentThreadAllocatedBytes();
+      long start = System.nanoTime();
+      long result = 0;
+      for (long i = 0; i < batch; i++) {
+        result += bench.run();
+      }
+      long time = System.nanoTime() - start;
+      bytes += threads.getCurrentThreadAllocatedBytes() - allocated;
+      sink += result;
+      nanos += time;
+      ops += batch;
+      if (!bench.perInvocation() && time < BATCH_NANOS) {
+        batch *= 2;
+      }
+    }
+    return new BenchScore(ops, nanos, bytes);
+  }
+
+  // to parse a comma-separated list of ints
+  static int[] parseInts(String list) {
+    String[] parts = list.split(",");
+    int[] values = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      values[i] = Integer.parseInt(parts[i].trim());
+    }
+    return values;
+  }
+
+  public static void main(String[] args) {
+    String pattern = args.length > 0 ? args[0] : ".*";
+    int[] sizes = args.length > 1 ? parseInts(args[1]) : new int[] {10, 100, 1000, 4096};
+    int[] colors = args.length > 2 ? parseInts(args[2]) : new int[] {3, 6, 26};
+    System.out.println("cell scans: " + CellScan.INSTANCE.name());
+    System.out.printf("%-16s %6s %6s %16s %14s %12s%n", "Benchmark", "size", "colors",
+        "ns/op", "B/op", "MB/sec");
+    for (BenchCase bench : cases()) {
+      if (!bench.name.matches(pattern)) {
+        continue;
+      }
+      for (int size : sizes) {
+        for (int numColors : colors) {
+          bench.setup(size, numColors);
+          measure(bench, WARMUP_NANOS);
+          BenchScore score = measure(bench, MEASURE_NANOS);
+          System.out.printf("%-16s %6d %6d %16.1f %14.1f %12.1f%n", bench.name, size,
+              numColors, score.nanosPerOp(), score.bytesPerOp(), score.allocationRate());
+        }
+      }
+    }
+  }
+}
+
+// to measure what the per-move hot path costs on a fixed seeded board, in
+// bytes allocated by the calling thread and in neighbor probes, and hold it
+// to a budget in ordinary test runs. Moves are those of a greedy game
+// replayed on the same board after an in-place reset, as in play, so
+// lists grown by the first game are reused. Costs are measured with
+// metrics and recordings off
+class HotPathBudget {
+  // bytes per call: a move without undo (bots, benchmarks, the server),
+  // win check and reset allocate nothing
+  static final double FLOOD_BYTES = 0;
+  static final double WIN_BYTES = 0;
+  static final double RESET_BYTES = 0;
+  // boards of at least Board.PARALLEL_CELLS are refilled by a parallel
+  // stream, which allocates its pipeline once per reset, not per cell
+  static final double PARALLEL_RESET_BYTES = 1024;
+  // a click in the window keeps an undo entry for its move: lists and
+  // ranges of the cells it absorbed and found, bounded per move and per
+  // cell changed, with the doubling of the lists and the range copies
+  static final double UNDO_MOVE_BYTES = 1024;
+  static final double UNDO_CELL_BYTES = 48;
+  // an idle frame may allocate the scene, but nothing per cell
+  static final double MAKE_SCENE_BYTES = 1024;
+  // neighbor probes a whole game makes per cell of the board, per neighbor
+  // a cell can have: each cell looks at its neighbors once when it joins
+  // the frontier and once when it is absorbed
+  static final double FLOOD_PROBES = 2;
+  static final int WARMUP_ROUNDS = 3;
+  static final int ROUNDS = 5;
+  // calls per round of the operations too quick to measure one by one
+  static final int CALLS = 10000;
+  static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  String name;
+  double measured;
+  double limit;
+
+  // constructor initializing a measured cost and its budget
+  HotPathBudget(String name, double measured, double limit) {
+    this.name = name;
+    this.measured = measured;
+    this.limit = limit;
+  }
+
+  // to return a description of how far the cost is over budget, or the
+  // empty string if it is within it
+  String overrun() {
+    return this.measured <= this.limit ? ""
+        : String.format("%s: %.2f over budget %.2f", this.name, this.measured, this.limit);
+  }
+
+  // to run the given round after the given preparation WARMUP_ROUNDS +
+  // ROUNDS times and return the fewest bytes a measured round allocated.
+  // An allocation on the path shows up in every round, while the one-off
+  // allocations of warming up (class loading, compilation) do not
+  static long leastBytes(Runnable prepare, Runnable round) {
+    long least = Long.MAX_VALUE;
+    for (int r = 0; r < WARMUP_ROUNDS + ROUNDS; r++) {
+      prepare.run();
+      long before = THREADS.getCurrentThreadAllocatedBytes();
+      round.run();
+      long used = THREADS.getCurrentThreadAllocatedBytes() - before;
+      if (r >= WARMUP_ROUNDS) {
+        least = Math.min(least, used);
+      }
+    }
+    return least;
+  }
+
+  // to play the given game out with greedy moves and return them
+  static IntList greedyGame(FloodItGame game) {
+    GreedyStrategy greedy = new GreedyStrategy();
+    IntList moves = new IntList();
+    while (!game.win()) {
+      int color = greedy.choose(game.view, null);
+      game.board.flood(color);
+      moves.add(color);
+    }
+    return moves;
+  }
+
+  // to return the bytes allocated per move while replaying the greedy
+  // game of the given board
+  static HotPathBudget floodBytes(int size, int numColors, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    IntList moves = greedyGame(game);
+    long bytes = leastBytes(() -> game.reset(seed), () -> {
+      for (int i = 0; i < moves.size; i++) {
+        game.board.flood(moves.get(i));
+      }
+    });
+    return new HotPathBudget("flood " + size + "x" + numColors + " bytes/move",
+        (double) bytes / Math.max(1, moves.size), FLOOD_BYTES);
+  }
+
+  // to return the neighbor probes the greedy game of the given board
+  // makes, from its reset on, per cell of the board
+  static HotPathBudget floodProbes(int size, int numColors, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    IntList moves = greedyGame(game);
+    long before = game.board.probes;
+    game.reset(seed);
+    for (int i = 0; i < moves.size; i++) {
+      game.board.flood(moves.get(i));
+    }
+    return new HotPathBudget("flood " + size + "x" + numColors + " probes/cell",
+        (double) (game.board.probes - before) / game.board.cellCount(),
+        FLOOD_PROBES * game.board.topology.maxDegree);
+  }
+
+  // to return the bytes allocated per click in the window of the given
+  // board, replaying its greedy game with undo on as the window keeps it,
+  // against a budget per move and per cell the move changes. Clicks go
+  // through onMouseClicked on boards drawn whole, and through play, which
+  // a viewport click calls, on boards drawn through a viewport
+  static HotPathBudget clickBytes(int size, int numColors, long seed) {
+    FloodItWorld world = new FloodItWorld(size, numColors, seed);
+    Board board = world.game.board;
+    GreedyStrategy greedy = new GreedyStrategy();
+    IntList moves = new IntList();
+    IntList clicked = new IntList();
+    // cells absorbed, and cells newly in the frontier
+    long changed = 0;
+    while (!world.game.win()) {
+      int color = greedy.choose(world.game.view, null);
+      IntList cells = board.frontierByColor[color];
+      int cell = cells.get(0);
+      for (int i = 1; !board.frontier.get(cell); i++) {
+        cell = cells.get(i);
+      }
+      int before = board.frontierTotal();
+      int absorbed = board.flood(color);
+      changed += board.frontierTotal() - before + absorbed + absorbed;
+      moves.add(color);
+      clicked.add(cell);
+    }
+    boolean whole = world.viewport == null;
+    long bytes = leastBytes(() -> world.game.reset(seed), () -> {
+      for (int i = 0; i < moves.size; i++) {
+        if (whole) {
+          int cell = clicked.get(i);
+          world.onMouseClicked(new Posn(
+              FloodItWorld.MARGIN + (2 * board.xOf(cell) + 1) * FloodItWorld.TILE_SIZE / 2,
+              FloodItWorld.MARGIN + (2 * board.yOf(cell) + 1) * FloodItWorld.TILE_SIZE / 2));
+        }
+        else {
+          world.game.play(moves.get(i));
+        }
+      }
+    });
+    int count = Math.max(1, moves.size);
+    return new HotPathBudget("click " + size + "x" + numColors + " bytes/move",
+        (double) bytes / count, UNDO_MOVE_BYTES + UNDO_CELL_BYTES * changed / count);
+  }
+
+  // to return the bytes allocated per win check
+  static HotPathBudget winBytes(int size, int numColors, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    long bytes = leastBytes(() -> { }, () -> {
+      int won = 0;
+      for (int i = 0; i < CALLS; i++) {
+        won += game.win() ? 1 : 0;
+      }
+      FloodBench.sink += won;
+    });
+    return new HotPathBudget("win " + size + "x" + numColors + " bytes/call",
+        (double) bytes / CALLS, WIN_BYTES);
+  }
+
+  // to return the bytes allocated per reset to a new seed
+  static HotPathBudget resetBytes(int size, int numColors, long seed) {
+    FloodItGame game = new FloodItGame(size, numColors, seed);
+    long bytes = leastBytes(() -> { }, () -> game.reset(game.seed + 1));
+    return new HotPathBudget("reset " + size + "x" + numColors + " bytes/call", bytes,
+        game.board.cellCount() < Board.PARALLEL_CELLS ? RESET_BYTES : PARALLEL_RESET_BYTES);
+  }
+
+  // to return the bytes allocated per idle frame
+  static HotPathBudget makeSceneBytes(int size, int numColors, long seed) {
+    FloodItWorld world = new FloodItWorld(size, numColors, seed);
+    long bytes = leastBytes(() -> { }, world::makeScene);
+    return new HotPathBudget("makeScene " + size + "x" + numColors + " bytes/frame", bytes,
+        MAKE_SCENE_BYTES);
+  }
+
+  // to return the cells painted by the frame after a move, against the
+  // cells the move can have changed: the flooded region, or the viewport's
+  // window on boards drawn through one
+  static HotPathBudget makeSceneCells(int size, int numColors, long seed) {
+    FloodItWorld world = new FloodItWorld(size, numColors, seed);
+    world.makeScene();
+    world.game.play(new GreedyStrategy().choose(world.game.view, null));
+    world.makeScene();
+    boolean whole = world.viewport == null;
+    return new HotPathBudget("makeScene " + size + "x" + numColors + " cells/frame",
+        whole ? world.renderer.painted : world.viewRenderer.painted,
+        whole ? world.game.board.floodedCount : (double) Viewport.PIXELS * Viewport.PIXELS);
+  }
+
+  // to measure every budget on the boards of the given sizes, with the
+  // given number of colors and seed
+  static ArrayList<HotPathBudget> measureAll(int[] sizes, int numColors, long seed) {
+    ArrayList<HotPathBudget> budgets = new ArrayList<>();
+    for (int size : sizes) {
+      budgets.add(floodBytes(size, numColors, seed));
+      budgets.add(floodProbes(size, numColors, seed));
+      budgets.add(clickBytes(size, numColors, seed));
+      budgets.add(winBytes(size, numColors, seed));
+      budgets.add(resetBytes(size, numColors, seed));
+      budgets.add(makeSceneBytes(size, numColors, seed));
+      budgets.add(makeSceneCells(size, numColors, seed));
+    }
+    return budgets;
+  }
+}
+
+//Examples and tests for Flood It
+class ExamplesFloodIt {
+  // to test the initColors method
+  void testInitColors(Tester t) {
+    // General case: 5 unique colors
+    FloodItWorld world = new FloodItWorld(10, 5);
+    // Checking if the size of the colors list is 5
+    t.checkExpect(world.colors.size(), 5);
+    // Checking if all colors are unique
+    t.checkExpect(world.colors.stream().distinct().count(), 5L);
+
+    // Edge case: 1 color
+    FloodItWorld world1 = new FloodItWorld(10, 1);
+    // Checking if the size of the colors list is 1
+    t.checkExpect(world1.colors.size(), 1);
+
+    // Edge case: Maximum colors (26 colors)
+    FloodItWorld worldMax = new FloodItWorld(10, 26);
+    // Checking if the size of the colors list is 26
+    t.checkExpect(worldMax.colors.size(), 26);
+    // Checking if all colors are unique
+    t.checkExpect(worldMax.colors.stream().distinct().count(), 26L);
+
+    // Edge case: Seeded worlds
+    FloodItWorld seeded = new FloodItWorld(10, 5, 8);
+    // Checking if the same seed gives the same palette
+    t.checkExpect(FloodItWorld.initColors(5, 8), seeded.colors);
+    t.checkExpect(new FloodItWorld(10, 5, 8).colors, seeded.colors);
+  }
+
+  // to test the createBoard method
+  void testCreateBoard(Tester t) {
+    // General case: 10x10 board
+    FloodItGame game = new FloodItGame(10, 5, 42);
+    // Checking if the size of the board is 100 cells
+    t.checkExpect(game.board.cellCount(), 100);
+    // Checking if all cells have valid colors
+    t.checkExpect(IntStream.range(0, 100).allMatch(i -> game.board.colorAt(i) < 5), true);
+    // Checking if the same seed gives the same board
+    t.checkExpect(game.createBoard(42).colors.toArray(),
+        new FloodItGame(10, 5, 42).board.colors.toArray());
+
+    // Edge case: 0x0 board
+    FloodItGame game0 = new FloodItGame(0, 5, 42);
+    // Checking if the size of the board is 0 cells
+    t.checkExpect(game0.board.cellCount(), 0);
+
+    // Edge case: 1x1 board
+    FloodItWorld world1 = new FloodItWorld(1, 5);
+    // Checking if the size of the board is 1 cell
+    t.checkExpect(world1.game.board.cellCount(), 1);
+    // Checking if the cell has a valid color
+    t.checkExpect(world1.colors.contains(world1.colorOf(0)), true);
+  }
+
+  // to test the fillRandom method
+  void testFillRandom(Tester t) {
+    // General case: Board spanning three stripes
+    Board board = new Board(130, 6);
+    board.fillRandom(99);
+    Board same = new Board(130, 6);
+    same.fillRandom(99);
+    // Checking if the same seed gives the same board
+    t.checkExpect(same.colors.toArray(), board.colors.toArray());
+    // Checking if every palette index is valid and used
+    int[] counts = new int[6];
+    for (int i = 0; i < board.cellCount(); i++) {
+      counts[board.colorAt(i)]++;
+    }
+    t.checkExpect(IntStream.of(counts).allMatch(count -> count > 2000), true);
+    // Checking if the stripes are not copies of each other
+    t.checkExpect(Arrays.equals(board.colors.toArray(), 0, 130, board.colors.toArray(), 64 * 130,
+        65 * 130), false);
+
+    // General case: Same board on one thread and on four
+    Board single = new Board(130, 6);
+    Board multi = new Board(130, 6);
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool four = new ForkJoinPool(4);
+    one.submit(() -> single.fillRandom(99)).join();
+    four.submit(() -> multi.fillRandom(99)).join();
+    one.shutdown();
+    four.shutdown();
+    // Checking if the thread count does not change the board
+    t.checkExpect(single.colors.toArray(), board.colors.toArray());
+    t.checkExpect(multi.colors.toArray(), board.colors.toArray());
+
+    // Edge case: Different seed
+    Board other = new Board(130, 6);
+    other.fillRandom(100);
+    // Checking if the board is different
+    t.checkExpect(Arrays.equals(other.colors.toArray(), board.colors.toArray()), false);
+
+    // Edge case: Empty board
+    Board empty = new Board(0, 6);
+    empty.fillRandom(99);
+    // Checking if nothing is generated
+    t.checkExpect(empty.cellCount(), 0);
+  }
+
+  // to test the StripeRandom class
+  void testStripeRandom(Tester t) {
+    // General case: Numbers drawn from a seed and its splits
+    StripeRandom random = new StripeRandom(42);
+    SplittableRandom expected = new SplittableRandom(42);
+    StripeRandom split = new StripeRandom(0);
+    split.splitFrom(random);
+    SplittableRandom expectedSplit = expected.split();
+    boolean same = true;
+    for (int i = 0; i < 1000; i++) {
+      same = same && random.nextInt(6) == expected.nextInt(6)
+          && split.nextInt(8) == expectedSplit.nextInt(8)
+          && random.nextLong() == expected.nextLong();
+    }
+    // Checking if they match SplittableRandom
+    t.checkExpect(same, true);
+
+    // General case: Board filled from generators split off a seed
+    Board board = new Board(130, 6);
+    board.fillRandom(7);
+    SplittableRandom root = new SplittableRandom(7);
+    byte[] colors = new byte[130 * 130];
+    for (int stripe = 0; stripe < 3; stripe++) {
+      SplittableRandom stripeRandom = root.split();
+      for (int i = stripe * 64 * 130; i < Math.min(130, (stripe + 1) * 64) * 130; i++) {
+        colors[i] = (byte) stripeRandom.nextInt(6);
+      }
+    }
+    // Checking if seeds give the same boards as with SplittableRandom
+    t.checkExpect(board.colors.toArray(), colors);
+
+    // Edge case: Bound that is a power of two, and a bound of 1
+    StripeRandom random1 = new StripeRandom(3);
+    SplittableRandom expected1 = new SplittableRandom(3);
+    // Checking if they match SplittableRandom too
+    t.checkExpect(random1.nextInt(16), expected1.nextInt(16));
+    t.checkExpect(random1.nextInt(1), 0);
+  }
+
+  // to test the HeapCellStore and MappedCellStore classes
+  void testCellStore(Tester t) {
+    try {
+      // General case: Cells set and read back in each store
+      CellStore heap = new HeapCellStore(10);
+      CellStore mapped = new MappedCellStore(10);
+      for (int i = 0; i < 10; i++) {
+        heap.set(i, (byte) (i % 3));
+        mapped.set(i, (byte) (i % 3));
+      }
+      // Checking if both stores hold the same cells
+      t.checkExpect(mapped.length(), 10);
+      t.checkExpect(mapped.toArray(), heap.toArray());
+      // Checking if a copy holds the same cells and does not share them
+      CellStore copy = mapped.copy();
+      copy.set(0, (byte) 2);
+      t.checkExpect(copy.get(1), (byte) 1);
+      t.checkExpect(mapped.get(0), (byte) 0);
+
+      // General case: Game played on a board kept off the heap
+      Board offHeap = new Board(60, 5, new MappedCellStore(3600));
+      offHeap.fillRandom(8);
+      offHeap.resetRegion();
+      FloodItGame game = new FloodItGame(offHeap, 8);
+      FloodItGame expected = new FloodItGame(60, 5, 8);
+      GreedyStrategy greedy = new GreedyStrategy();
+      while (!expected.win()) {
+        game.play(greedy.choose(game.view, null));
+        expected.play(greedy.choose(expected.view, null));
+      }
+      // Checking if it plays exactly like a board on the heap
+      t.checkExpect(game.win(), true);
+      t.checkExpect(game.clicks, expected.clicks);
+      t.checkExpect(offHeap.copy().colors.toArray(), expected.board.colors.toArray());
+      t.checkExpect(ComponentLabeler.label(offHeap).labels,
+          new ComponentGraph(expected.board).labels);
+
+      // Edge case: Empty mapped store
+      // Checking if it has no cells
+      t.checkExpect(new MappedCellStore(0).length(), 0);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    // Edge case: Board too big to index
+    // Checking if it is refused before allocating
+    t.checkException(new IllegalArgumentException("board size out of range: 46341"),
+        new Board(1, 1), "storeFor", 46341);
+  }
+
+  // to test the indexOf, xOf and yOf methods
+  void testBoardPositions(Tester t) {
+    // General case: 3x3 board
+    Board board = new Board(3, 3);
+    // Checking if the middle cell is at index 4
+    t.checkExpect(board.indexOf(1, 1), 4);
+    // Checking if the positions of the last cell are correct
+    t.checkExpect(board.xOf(8), 2);
+    t.checkExpect(board.yOf(8), 2);
+    // Checking if the positions are the inverse of the index
+    t.checkExpect(board.indexOf(board.xOf(5), board.yOf(5)), 5);
+
+    // Edge case: 1x1 board
+    Board board1 = new Board(1, 1);
+    // Checking if the only cell is at index 0
+    t.checkExpect(board1.indexOf(0, 0), 0);
+  }
+
+  // to test the top, bottom, left and right methods
+  void testNeighbors(Tester t) {
+    // General case: 3x3 board
+    Board board = new Board(3, 3);
+    // Checking if the top cell of the middle cell is correct
+    t.checkExpect(board.top(4), 1);
+    // Checking if the bottom cell of the middle cell is correct
+    t.checkExpect(board.bottom(4), 7);
+    // Checking if the left cell of the middle cell is correct
+    t.checkExpect(board.left(4), 3);
+    // Checking if the right cell of the middle cell is correct
+    t.checkExpect(board.right(4), 5);
+
+    // Edge case: 1x1 board (no neighbors)
+    Board board1 = new Board(1, 1);
+    // Checking if the top cell is missing
+    t.checkExpect(board1.top(0), -1);
+    // Checking if the bottom cell is missing
+    t.checkExpect(board1.bottom(0), -1);
+    // Checking if the left cell is missing
+    t.checkExpect(board1.left(0), -1);
+    // Checking if the right cell is missing
+    t.checkExpect(board1.right(0), -1);
+
+    // Edge case: 2x2 board
+    Board board2 = new Board(2, 2);
+    // Checking if the top cell is missing
+    t.checkExpect(board2.top(0), -1);
+    // Checking if the bottom cell is correct
+    t.checkExpect(board2.bottom(0), 2);
+    // Checking if the left cell is missing
+    t.checkExpect(board2.left(0), -1);
+    // Checking if the right cell is correct
+    t.checkExpect(board2.right(0), 1);
+    // Checking if the right cell of the last cell in a row is missing
+    t.checkExpect(board2.right(1), -1);
+  }
+
+  // to test the Topology classes
+  void testTopology(Tester t) {
+    // General case: Middle and corner cells of a 3x3 square grid
+    Topology square = new SquareTopology(3, 3);
+    // Checking if the middle cell has the cells above, below, left and right of it
+    t.checkExpect(square.neighbors(4), new int[] {-3, 3, -1, 1});
+    // Checking if a corner cell only has the cells inside the board
+    t.checkExpect(square.neighbors(0), new int[] {3, 1});
+    t.checkExpect(square.maxDegree, 4);
+    t.checkExpect(square.isGrid(), true);
+
+    // General case: Grid with diagonal neighbors
+    Topology eight = new EightTopology(3, 3);
+    // Checking if the middle cell touches every other cell
+    t.checkExpect(eight.neighbors(4), new int[] {-4, -3, -2, -1, 1, 2, 3, 4});
+    // Checking if a corner cell touches three cells
+    t.checkExpect(eight.neighbors(8), new int[] {-4, -3, -1});
+    t.checkExpect(eight.isGrid(), false);
+
+    // General case: Hex grid with shifted odd rows
+    Topology hex = new HexTopology(3, 3);
+    // Checking if a cell of an odd row touches the cells right of its column
+    t.checkExpect(hex.neighbors(4), new int[] {-3, 3, -1, 2, 1, 4});
+    // Checking if a cell of the top row touches two cells of the next row
+    t.checkExpect(hex.neighbors(3), new int[] {-3, 3, -2, 1});
+    t.checkExpect(hex.maxDegree, 6);
+
+    // General case: Grid wrapping around its edges
+    Topology torus = new TorusTopology(3, 3);
+    // Checking if a corner cell touches the cells across the edges
+    t.checkExpect(torus.neighbors(0), new int[] {6, 3, 2, 1});
+    // Edge case: 2x2 torus
+    // Checking if a cell reached both ways is only listed once
+    t.checkExpect(new TorusTopology(2, 2).neighbors(0), new int[] {2, 1});
+    // Edge case: 1x1 torus
+    // Checking if the cell is not its own neighbor
+    t.checkExpect(new TorusTopology(1, 1).neighbors(0), new int[] {});
+
+    // General case: Board wider than it is tall
+    Topology wide = new SquareTopology(4, 2);
+    // Checking if the offsets use the height of the board
+    t.checkExpect(wide.neighbors(3), new int[] {-2, 2, -1});
+    t.checkExpect(wide.cellCount(), 8);
+
+    // General case: Offset tables of every topology and small size
+    boolean same = true;
+    IntList xs = new IntList();
+    IntList ys = new IntList();
+    for (String name : new String[] {"square", "eight", "hex", "torus"}) {
+      for (int width = 1; width <= 6; width++) {
+        for (int height = 1; height <= 6; height++) {
+          Topology topology = Topology.named(name, width, height);
+          for (int i = 0; i < topology.cellCount(); i++) {
+            xs.clear();
+            ys.clear();
+            topology.neighborsOf(i / height, i % height, xs, ys);
+            int[] expected = new int[xs.size];
+            for (int n = 0; n < xs.size; n++) {
+              expected[n] = xs.get(n) * height + ys.get(n) - i;
+            }
+            same = same && Arrays.equals(topology.neighbors(i), expected);
+          }
+        }
+      }
+    }
+    // Checking if every cell's table lists exactly its neighbors
+    t.checkExpect(same, true);
+
+    // General case: Cells under the mouse
+    // Checking if a square grid maps pixels to cells by whole tiles
+    t.checkExpect(square.cellAtPixel(25, 45, 20), 5);
+    // Checking if the odd rows of a hex grid are shifted by half a tile
+    t.checkExpect(hex.cellAtPixel(25, 25, 20), 1);
+    t.checkExpect(hex.cellAtPixel(5, 25, 20), -1);
+    t.checkExpect(hex.cellAtPixel(5, 5, 20), 0);
+    // Edge case: Pixel past the board
+    // Checking if there is no cell
+    t.checkExpect(square.cellAtPixel(65, 5, 20), -1);
+
+    // Edge case: Unknown topology and board too large
+    // Checking if they are rejected
+    t.checkException(new IllegalArgumentException("unknown topology: triangle"),
+        new SquareTopology(1, 1), "named", "triangle", 3, 3);
+    t.checkConstructorException(new IllegalArgumentException(
+        "board size out of range: 46341x46341"), "SquareTopology", 46341, 46341);
+  }
+
+  // to test the colorAt and setColorAt methods
+  void testColorAt(Tester t) {
+    // General case: Set and read back a palette index
+    Board board = new Board(3, 3);
+    board.setColorAt(4, 2);
+    // Checking if the stored palette index is returned
+    t.checkExpect(board.colorAt(4), 2);
+    // Checking if other cells are untouched
+    t.checkExpect(board.colorAt(3), 0);
+
+    // Edge case: Cell inside the flooded region
+    board.resetRegion();
+    board.flood(1);
+    // Checking if the flooded cell reports the color of the region
+    t.checkExpect(board.colorAt(0), 1);
+  }
+
+  // to test the play method
+  void testPlay(Tester t) {
+    // General case: Change the color of the top-left cell
+    FloodItWorld world = new FloodItWorld(3, 3);
+    world.game.board.setColorAt(0, 0);
+    world.game.board.resetRegion();
+    world.game.play(1);
+    // Checking if the color of the top-left cell is changed
+    t.checkExpect(world.game.board.colorAt(0), 1);
+    // Checking if the click is counted
+    t.checkExpect(world.game.clicks, 1);
+
+    // Edge case: Flooding with the same color
+    FloodItWorld world1 = new FloodItWorld(3, 3);
+    int initialColor = world1.game.board.colorAt(0);
+    world1.game.play(initialColor);
+    // Checking if the color of the top-left cell is unchanged
+    t.checkExpect(world1.game.board.colorAt(0), initialColor);
+    // Checking if the click is not counted
+    t.checkExpect(world1.game.clicks, 0);
+
+    // Edge case: Flooding a larger board
+    FloodItWorld world2 = new FloodItWorld(5, 5);
+    world2.game.board.setColorAt(0, 3);
+    world2.game.board.resetRegion();
+    world2.game.play(4);
+    // Checking if the color of the top-left cell is changed
+    t.checkExpect(world2.game.board.colorAt(0), 4);
+  }
+
+  // to test the IntList class
+  void testIntList(Tester t) {
+    // General case: Add and pop items
+    IntList list = new IntList();
+    list.add(3);
+    list.add(5);
+    // Checking if the items are kept in order
+    t.checkExpect(list.get(0), 3);
+    t.checkExpect(list.get(1), 5);
+    // Checking if pop returns the last item
+    t.checkExpect(list.pop(), 5);
+    t.checkExpect(list.size, 1);
+
+    // Edge case: Growing past the initial capacity
+    for (int i = 0; i < 100; i++) {
+      list.add(i);
+    }
+    // Checking if all items are kept
+    t.checkExpect(list.size, 101);
+    t.checkExpect(list.get(100), 99);
+    // General case: Copying the list
+    IntList copy = list.copy();
+    copy.add(7);
+    // Checking if the copy has the same items
+    t.checkExpect(copy.get(100), 99);
+    // Checking if the original is unchanged by the copy
+    t.checkExpect(list.size, 101);
+    // Edge case: Clearing the list
+    list.clear();
+    // Checking if the list is empty
+    t.checkExpect(list.size, 0);
+    // General case: Unsorted items with a repeat, as ranges
+    list.add(7);
+    list.add(3);
+    list.add(4);
+    list.add(7);
+    list.add(8);
+    // Checking if neighboring items are merged and the repeat ignored
+    t.checkExpect(list.toRanges(), new int[] {3, 5, 7, 9});
+    // Edge case: Empty list
+    // Checking if there are no ranges
+    t.checkExpect(new IntList().toRanges(), new int[] {});
+  }
+
+  // to test the resetRegion method
+  void testResetRegion(Tester t) {
+    // General case: Region of two cells on a 3x3 board
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    board.resetRegion();
+    // Checking if the region holds the two top-left cells
+    t.checkExpect(board.flooded.cardinality(), 2);
+    t.checkExpect(board.flooded.get(3), true);
+    t.checkExpect(board.floodedCount, 2);
+    // Checking if the frontier holds the components next to the region
+    t.checkExpect(board.frontier.cardinality(), 7);
+    t.checkExpect(board.frontierByColor[1].size, 2);
+    t.checkExpect(board.frontierByColor[2].size, 5);
+    // Checking if the region has the top-left color
+    t.checkExpect(board.floodColor, 0);
+
+    // Edge case: Single-colored board
+    Board board1 = new Board(3, 3);
+    board1.resetRegion();
+    // Checking if every cell is flooded
+    t.checkExpect(board1.flooded.cardinality(), 9);
+    t.checkExpect(board1.floodedCount, 9);
+    // Checking if the frontier is empty
+    t.checkExpect(board1.frontier.isEmpty(), true);
+
+    // Edge case: Large single-colored board does not overflow the stack
+    Board board2 = new Board(1000, 2);
+    board2.resetRegion();
+    // Checking if every cell is flooded
+    t.checkExpect(board2.flooded.cardinality(), 1000000);
+  }
+
+  // to test the copy method of Board
+  void testBoardCopy(Tester t) {
+    // General case: Copy a board in the middle of a game
+    FloodItGame game = new FloodItGame(10, 4, 3);
+    game.play((game.board.floodColor + 1) % 4);
+    Board copy = game.board.copy();
+    // Checking if the copy has the same colors and region
+    t.checkExpect(copy.colors.toArray(), game.board.colors.toArray());
+    t.checkExpect(copy.flooded, game.board.flooded);
+    t.checkExpect(copy.floodedCount, game.board.floodedCount);
+    t.checkExpect(copy.gain(2), game.board.gain(2));
+    // Checking if moves on the copy leave the original unchanged
+    int flooded = game.board.floodedCount;
+    copy.flood((copy.floodColor + 1) % 4);
+    copy.flood((copy.floodColor + 1) % 4);
+    t.checkExpect(game.board.floodedCount, flooded);
+    t.checkExpect(copy.floodedCount > flooded, true);
+
+    // Edge case: Empty board
+    // Checking if the copy is empty too
+    t.checkExpect(new Board(0, 3).copy().cellCount(), 0);
+  }
+
+  // to test the floodUndoable and undo methods of Board
+  void testBoardUndo(Tester t) {
+    // General case: 3x3 board
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    board.resetRegion();
+    UndoEntry entry = board.floodUndoable(2);
+    // Checking if the absorbed and found cells are stored as ranges
+    t.checkExpect(entry.ranges, new int[] {2, 3, 4, 6, 7, 9});
+    t.checkExpect(entry.found, new int[] {});
+    t.checkExpect(entry.absorbed, 5);
+    t.checkExpect(entry.previousColor, 0);
+    // Checking if a move to the color of the region records nothing
+    t.checkExpect(board.floodUndoable(2), null);
+    board.undo(entry);
+    // Checking if the region, frontier and gains are restored
+    t.checkExpect(board.floodColor, 0);
+    t.checkExpect(board.floodedCount, 2);
+    t.checkExpect(board.flooded.cardinality(), 2);
+    t.checkExpect(board.frontier.cardinality(), 7);
+    t.checkExpect(board.gain(1), 2);
+    t.checkExpect(board.gain(2), 5);
+    t.checkExpect(board.colorAt(4), 2);
+    // Checking if the move can be made again
+    t.checkExpect(board.flood(2), 5);
+
+    // General case: Undo a whole random game move by move
+    FloodItGame game = new FloodItGame(30, 5, 12);
+    ArrayList<Board> boards = new ArrayList<>();
+    ArrayList<UndoEntry> entries = new ArrayList<>();
+    GreedyStrategy greedy = new GreedyStrategy();
+    while (!game.win()) {
+      boards.add(game.board.copy());
+      int color = greedy.choose(game.view, null);
+      entries.add(game.board.floodUndoable(color));
+    }
+    boolean restored = true;
+    for (int m = entries.size() - 1; m >= 0; m--) {
+      game.board.undo(entries.get(m));
+      Board before = boards.get(m);
+      restored = restored && game.board.flooded.equals(before.flooded)
+          && game.board.frontier.equals(before.frontier)
+          && game.board.floodColor == before.floodColor
+          && game.board.floodedCount == before.floodedCount;
+      for (int c = 0; c < 5; c++) {
+        restored = restored && game.board.gain(c) == before.gain(c);
+      }
+    }
+    // Checking if every earlier state is restored
+    t.checkExpect(restored, true);
+
+    // Edge case: Move that absorbs nothing
+    Board board1 = new Board(2, 3);
+    board1.setColorAt(1, 1);
+    board1.resetRegion();
+    UndoEntry empty = board1.floodUndoable(2);
+    board1.undo(empty);
+    // Checking if only the color of the region is restored
+    t.checkExpect(empty.ranges.length, 0);
+    t.checkExpect(board1.colorAt(0), 0);
+    t.checkExpect(board1.gain(1), 1);
+  }
+
+  // to test the undo and redo methods of FloodItGame
+  void testUndoRedo(Tester t) {
+    // General case: Undo and redo two moves
+    FloodItGame game = new FloodItGame(10, 4, 3);
+    game.enableUndo(1 << 20);
+    int first = (game.board.floodColor + 1) % 4;
+    game.play(first);
+    Board afterFirst = game.board.copy();
+    int second = (game.board.floodColor + 1) % 4;
+    game.play(second);
+    Board afterSecond = game.board.copy();
+    // Checking if undo restores the click count and region
+    t.checkExpect(game.undo() != null, true);
+    t.checkExpect(game.clicks, 1);
+    t.checkExpect(game.board.flooded, afterFirst.flooded);
+    // Checking if redo plays the move again
+    t.checkExpect(game.redo(), true);
+    t.checkExpect(game.clicks, 2);
+    t.checkExpect(game.board.flooded, afterSecond.flooded);
+    // Checking if a new move drops the undone moves
+    game.undo();
+    game.play((second + 1) % 4 == game.board.floodColor ? (second + 2) % 4 : (second + 1) % 4);
+    t.checkExpect(game.redo(), false);
+    // Checking if undoing past the first move does nothing
+    game.undo();
+    game.undo();
+    t.checkExpect(game.undo(), null);
+    t.checkExpect(game.clicks, 0);
+
+    // Edge case: Undo is off
+    FloodItGame game1 = new FloodItGame(10, 4, 3);
+    game1.play((game1.board.floodColor + 1) % 4);
+    // Checking if nothing is undone
+    t.checkExpect(game1.undo(), null);
+    t.checkExpect(game1.clicks, 1);
+
+    // Edge case: Memory budget smaller than the history
+    FloodItGame game2 = new FloodItGame(20, 4, 3);
+    game2.enableUndo(300);
+    for (int m = 0; m < 10; m++) {
+      game2.play((game2.board.floodColor + 1) % 4);
+    }
+    // Checking if the oldest moves are dropped to stay within budget
+    t.checkExpect(game2.history.usedBytes <= 300, true);
+    t.checkExpect(game2.history.undo.size() < 10, true);
+    int undone = 0;
+    while (game2.undo() != null) {
+      undone++;
+    }
+    t.checkExpect(undone, game2.history.redo.size);
+    t.checkExpect(game2.clicks, 10 - undone);
+
+    // Edge case: Reset forgets the history
+    game.reset(4);
+    // Checking if nothing can be undone
+    t.checkExpect(game.undo(), null);
+  }
+
+  // to test the gain method
+  void testGain(Tester t) {
+    // General case: Gains of each color on a 3x3 board
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    board.resetRegion();
+    // Checking if the gain counts every cell of the touching components
+    t.checkExpect(board.gain(1), 2);
+    t.checkExpect(board.gain(2), 5);
+    // Checking if the gain matches the cells absorbed by the move
+    t.checkExpect(board.flood(2), 5);
+    // Checking if the gains are updated after the move
+    t.checkExpect(board.gain(1), 2);
+    t.checkExpect(board.gain(0), 0);
+
+    // Edge case: Color of the flooded region
+    // Checking if the gain is 0
+    t.checkExpect(board.gain(2), 0);
+
+    // Edge case: Random board, gains agree with the moves they preview
+    FloodItWorld world = new FloodItWorld(30, 4);
+    int color = (world.game.board.floodColor + 1) % 4;
+    int expected = world.game.board.floodedCount + world.game.board.gain(color);
+    world.game.play(color);
+    // Checking if the region grew by the previewed gain
+    t.checkExpect(world.game.board.floodedCount, expected);
+  }
+
+  // to test the colorCounts method
+  void testColorCounts(Tester t) {
+    // General case: 3x3 board before and after a move
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    board.resetRegion();
+    // Checking if every cell is counted once
+    t.checkExpect(board.colorCounts(), new int[] {2, 2, 5});
+    board.flood(2);
+    // Checking if the flooded region counts as its new color
+    t.checkExpect(board.colorCounts(), new int[] {0, 2, 7});
+
+    // Edge case: Board larger than a vector, counted cell by cell
+    FloodItGame game = new FloodItGame(37, 4, 3);
+    game.play((game.board.floodColor + 1) % 4);
+    int[] expected = new int[4];
+    for (int i = 0; i < game.board.cellCount(); i++) {
+      expected[game.board.colorAt(i)]++;
+    }
+    // Checking if the counts agree
+    t.checkExpect(game.board.colorCounts(), expected);
+  }
+
+  // to test the isUniform method
+  void testIsUniform(Tester t) {
+    // General case: Board of one color flooded in one move
+    // 0 1
+    // 1 1
+    Board board = new Board(2, 2);
+    board.setColorAt(1, 1);
+    board.setColorAt(2, 1);
+    board.setColorAt(3, 1);
+    board.resetRegion();
+    // Checking if the board is not uniform before the move
+    t.checkExpect(board.isUniform(1), false);
+    t.checkExpect(board.isUniform(0), false);
+    board.flood(1);
+    // Checking if the board is uniform in the flooded color only
+    t.checkExpect(board.isUniform(1), true);
+    t.checkExpect(board.isUniform(0), false);
+
+    // Edge case: Won game on a board larger than a vector
+    FloodItGame game = new FloodItGame(37, 3, 5);
+    game.enableUndo(1 << 20);
+    GreedyStrategy greedy = new GreedyStrategy();
+    while (!game.win()) {
+      game.play(greedy.choose(game.view, null));
+    }
+    // Checking if a won board is uniform
+    t.checkExpect(game.board.isUniform(game.board.floodColor), true);
+    game.undo();
+    // Checking if undoing the last move breaks it up again
+    t.checkExpect(game.board.isUniform(game.board.floodColor), false);
+  }
+
+  // to test the shownColors method
+  void testShownColors(Tester t) {
+    // General case: Board in the middle of a game
+    FloodItGame game = new FloodItGame(37, 4, 9);
+    game.enableUndo(1 << 20);
+    game.play((game.board.floodColor + 1) % 4);
+    byte[] before = game.board.shownColors();
+    game.play((game.board.floodColor + 1) % 4);
+    byte[] shown = game.board.shownColors();
+    boolean same = shown.length == game.board.cellCount();
+    for (int i = 0; i < game.board.cellCount(); i++) {
+      same = same && shown[i] == game.board.colorAt(i);
+    }
+    // Checking if every cell shows its color
+    t.checkExpect(same, true);
+    // Checking if the cells under the flooded region are kept for undo
+    game.undo();
+    t.checkExpect(game.board.shownColors(), before);
+  }
+
+  // to test the CellScan class and the scans of a CellStore
+  void testCellScan(Tester t) {
+    CellScan scalar = new CellScan();
+    byte[] cells = {2, 0, 2, 2, 1};
+    long[] skip = {0b10010L};
+    // General case: Scans skipping cells 1 and 4
+    // Checking if the other cells are all 2
+    t.checkExpect(scalar.allEqual(cells, skip, (byte) 2), true);
+    t.checkExpect(scalar.allEqual(cells, new long[0], (byte) 2), false);
+    // Checking if only the other cells are counted
+    int[] counts = new int[3];
+    scalar.count(cells, skip, counts);
+    t.checkExpect(counts, new int[] {0, 0, 3});
+    // Checking if only the masked cells are filled
+    scalar.fill(cells, skip, (byte) 1);
+    t.checkExpect(cells, new byte[] {2, 1, 2, 2, 1});
+
+    // Edge case: Bits of the mask in the second word
+    byte[] wide = new byte[130];
+    scalar.fill(wide, new long[] {0, 1L << 63}, (byte) 1);
+    // Checking if the mask bit is read from the right word
+    t.checkExpect(wide[127], (byte) 1);
+    t.checkExpect(CellScan.bit(new long[] {0, 1L << 63}, 127), true);
+    // Checking if cells past the mask are never masked
+    t.checkExpect(CellScan.bit(new long[] {-1L}, 64), false);
+
+    // Edge case: Off-heap store, scanned cell by cell
+    try {
+      CellStore mapped = new MappedCellStore(5);
+      mapped.set(1, (byte) 1);
+      // Checking if the store's scans agree with the array's
+      t.checkExpect(mapped.allEqual(new long[] {0b10L}, (byte) 0), true);
+      int[] mappedCounts = new int[2];
+      mapped.count(new long[0], mappedCounts);
+      t.checkExpect(mappedCounts, new int[] {4, 1});
+      mapped.fill(new long[] {0b10001L}, (byte) 1);
+      t.checkExpect(mapped.toArray(), new byte[] {1, 1, 0, 0, 1});
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
     }
-    return colors;
   }
 
-  // to return a board with the user inputed size value
-  // and randomize the colors with this FloodItWorld's array of colors
-  // (constructed row by row)
-  ArrayList<Cell> createBoard() {
-    ArrayList<Cell> board = new ArrayList<>();
-    for (int x = 0; x < this.size; x++) {
-      for (int y = 0; y < this.size; y++) {
-        board.add(new Cell(x, y, this.colors.get((int) (Math.random() * this.numColors))));
-      }
+  // to test the flood method of Board
+  void testBoardFlood(Tester t) {
+    // General case: Absorb the cells of one color next to the region
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
     }
-    return board;
+    board.resetRegion();
+    // Checking if the connected cells of color 2 are absorbed
+    t.checkExpect(board.flood(2), 5);
+    t.checkExpect(board.flooded.cardinality(), 7);
+    t.checkExpect(board.floodedCount, 7);
+    // Checking if every flooded cell has the new color
+    t.checkExpect(board.colorAt(0), 2);
+    t.checkExpect(board.colorAt(8), 2);
+    // Checking if the frontier only holds the remaining cells
+    t.checkExpect(board.frontier.cardinality(), 2);
+    t.checkExpect(board.frontierByColor[1].size, 2);
+    // Checking if the last cells are absorbed
+    t.checkExpect(board.flood(1), 2);
+    t.checkExpect(board.flooded.cardinality(), 9);
+
+    // Checking if the moves are counted
+    t.checkExpect(board.changes, 2);
+    // Edge case: Flooding with the color of the region
+    // Checking if nothing is absorbed
+    t.checkExpect(board.flood(1), 0);
+    t.checkExpect(board.changes, 2);
+
+    // Edge case: Flooding with a color missing from the frontier
+    Board board1 = new Board(2, 3);
+    board1.setColorAt(1, 1);
+    board1.resetRegion();
+    // Checking if nothing is absorbed but the region changes color
+    t.checkExpect(board1.flood(2), 0);
+    t.checkExpect(board1.colorAt(0), 2);
+    // Checking if the frontier is still there
+    t.checkExpect(board1.flood(1), 1);
   }
 
-  // to initialize all 4 of the directional connection
-  // fields in this FloodItWorld's array of cells
-  void connectCells() {
-    for (int x = 0; x < this.size; x++) {
-      for (int y = 0; y < this.size; y++) {
-        Cell c = this.board.get(x * this.size + y);
-        if (x > 0) {
-          c.top = this.board.get((x - 1) * this.size + y);
-        }
-        if (x < this.size - 1) {
-          c.bottom = this.board.get((x + 1) * this.size + y);
-        }
-        if (y > 0) {
-          c.left = this.board.get(x * this.size + (y - 1));
-        }
-        if (y < this.size - 1) {
-          c.right = this.board.get(x * this.size + (y + 1));
+  // to test flooding boards of every topology
+  void testTopologyFlood(Tester t) {
+    // General case: Greedy games on 12x9 boards of every topology
+    boolean matches = true;
+    boolean won = true;
+    IntList xs = new IntList();
+    IntList ys = new IntList();
+    for (String name : new String[] {"square", "eight", "hex", "torus"}) {
+      FloodItGame game = new FloodItGame(Topology.named(name, 12, 9), 4, 5);
+      GreedyStrategy greedy = new GreedyStrategy();
+      while (!game.win() && game.clicks < 200) {
+        game.play(greedy.choose(game.view, null));
+        // the region found by a search over the neighbors of each cell
+        Board board = game.board;
+        BitSet region = new BitSet();
+        IntList pending = new IntList();
+        region.set(0);
+        pending.add(0);
+        while (pending.size > 0) {
+          int cell = pending.pop();
+          xs.clear();
+          ys.clear();
+          board.topology.neighborsOf(board.xOf(cell), board.yOf(cell), xs, ys);
+          for (int n = 0; n < xs.size; n++) {
+            int next = board.indexOf(xs.get(n), ys.get(n));
+            if (!region.get(next) && board.colorAt(next) == board.floodColor) {
+              region.set(next);
+              pending.add(next);
+            }
+          }
         }
+        matches = matches && region.equals(board.flooded)
+            && board.floodedCount == region.cardinality();
       }
+      won = won && game.win();
     }
-  }
+    // Checking if the flooded region is always the region of the top-left cell
+    t.checkExpect(matches, true);
+    // Checking if every game is won
+    t.checkExpect(won, true);
 
-  // Floods cells starting from top left.
-  void flood(Color newColor) {
-    Cell start = this.board.get(0);
-    if (start.color.equals(newColor)) {
-      return;
+    // General case: Neighbors across the edges of a torus
+    // 0 1 0
+    // 1 1 1
+    // 0 1 0
+    Board torus = new Board(new TorusTopology(3, 3), 2);
+    Board square = new Board(new SquareTopology(3, 3), 2);
+    int[] colors = {0, 1, 0, 1, 1, 1, 0, 1, 0};
+    for (int i = 0; i < 9; i++) {
+      torus.setColorAt(i, colors[i]);
+      square.setColorAt(i, colors[i]);
     }
-    else {
-      this.floodHelp(start, start.color, newColor);
-      // Reset flooded status so the next turn can be done, and increment the counter.
-      this.resetFloodedStatus();
-      this.clicks++;
+    torus.resetRegion();
+    square.resetRegion();
+    // Checking if the corners are one region on a torus only
+    t.checkExpect(torus.floodedCount, 4);
+    t.checkExpect(square.floodedCount, 1);
+
+    // General case: Diagonal neighbors
+    Board eight = new Board(new EightTopology(3, 3), 2);
+    for (int i = 0; i < 9; i++) {
+      eight.setColorAt(i, colors[i]);
     }
+    eight.resetRegion();
+    // Checking if the corner touches no other corner
+    t.checkExpect(eight.floodedCount, 1);
+    // Checking if the region takes every cell of color 1 in one move
+    t.checkExpect(eight.flood(1), 5);
+    // Checking if the other corners are all reached through the middle cell
+    t.checkExpect(eight.flood(0), 3);
+
+    // Edge case: Board taller than it is wide
+    FloodItGame tall = new FloodItGame(new SquareTopology(2, 7), 3, 1);
+    // Checking if the board has every cell
+    t.checkExpect(tall.board.cellCount(), 14);
+    t.checkExpect(tall.board.height, 7);
+    // Checking if the max clicks follow the average side
+    t.checkExpect(tall.maxTries, FloodItGame.maxTriesFor(4, 3));
+    // Checking if the copy keeps the topology
+    t.checkExpect(tall.board.copy().topology, tall.board.topology);
+    // Checking if difficulties are only calibrated on square grids
+    t.checkException(new IllegalStateException("difficulty needs a square grid"), tall,
+        "calibrate", new Difficulty(1, 5, 0));
   }
 
-  // Helper method that floods cells adjacent to current growing blob of cells
-  void floodHelp(Cell cell, Color old, Color updated) {
-    if (cell == null || !cell.color.equals(old) || cell.flooded) {
-      return;
+  // to test the win method
+  void testWin(Tester t) {
+    // General case: All cells have the same color
+    FloodItWorld world = new FloodItWorld(3, 3);
+    for (int i = 0; i < world.game.board.cellCount(); i++) {
+      world.game.board.setColorAt(i, 2);
     }
-    // Changes the cell color to the new one, changes status of the cell to flooded,
-    // recursive call
-    cell.color = updated;
-    cell.flooded = true;
-    this.floodHelp(cell.top, old, updated);
-    this.floodHelp(cell.bottom, old, updated);
-    this.floodHelp(cell.left, old, updated);
-    this.floodHelp(cell.right, old, updated);
+    world.game.board.resetRegion();
+    // Checking if the player has won
+    t.checkExpect(world.game.win(), true);
+
+    // Edge case: Not all cells have the same color
+    FloodItWorld world1 = new FloodItWorld(3, 3);
+    world1.game.board.setColorAt(0, 0);
+    world1.game.board.setColorAt(1, 1);
+    world1.game.board.resetRegion();
+    // Checking if the player has not won
+    t.checkExpect(world1.game.win(), false);
+    // Edge case: 1x1 board with the same color
+    FloodItWorld world2 = new FloodItWorld(1, 1);
+    world2.game.board.setColorAt(0, 0);
+    world2.game.board.resetRegion();
+    // Checking if the player has won
+    t.checkExpect(world2.game.win(), true);
+  }
+
+  // to test the lose method
+  void testLose(Tester t) {
+    // General case: Clicks used up on an unfinished board
+    FloodItGame game = new FloodItGame(3, 3, 7);
+    game.board.setColorAt(0, 0);
+    game.board.setColorAt(1, 1);
+    game.board.resetRegion();
+    game.clicks = game.maxTries;
+    // Checking if the player has lost
+    t.checkExpect(game.lose(), true);
+
+    // Edge case: Clicks left
+    game.clicks = game.maxTries - 1;
+    // Checking if the player has not lost
+    t.checkExpect(game.lose(), false);
+
+    // Edge case: Board flooded on the last click
+    game.play(1);
+    game.play(2);
+    game.play(0);
+    game.clicks = game.maxTries;
+    // Checking if a won game is not lost
+    t.checkExpect(game.win(), true);
+    t.checkExpect(game.lose(), false);
   }
 
-  // Resets flooded status
-  void resetFloodedStatus() {
-    for (Cell c : this.board) {
-      c.flooded = false;
+  // to test the reset method of FloodItGame
+  void testGameReset(Tester t) {
+    // General case: Reset a game to a seeded board
+    FloodItGame game = new FloodItGame(10, 4, 1);
+    game.play((game.board.floodColor + 1) % 4);
+    game.tick();
+    game.reset(2);
+    // Checking if the board comes from the new seed
+    t.checkExpect(game.board.colors.toArray(), new FloodItGame(10, 4, 2).board.colors.toArray());
+    // Checking if the click count and time are reset
+    t.checkExpect(game.clicks, 0);
+    t.checkExpect(game.elapsedTime, 0.0);
+    // Checking if maxTries is unchanged
+    t.checkExpect(game.maxTries, 15);
+
+    // General case: Resets once the board has been refilled before
+    Board board = game.board;
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    for (int i = 0; i < 100; i++) {
+      game.play((game.board.floodColor + 1) % 4);
+      game.reset(i);
     }
+    long allocated = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < 100; i++) {
+      game.reset(i);
+    }
+    // Checking if the board is refilled in place without allocating
+    t.checkExpect(threads.getCurrentThreadAllocatedBytes() - allocated, 0L);
+    t.checkExpect(game.board == board, true);
   }
 
-  // Checks if player has won or not
-  boolean win() {
-    Color firstColor = this.board.get(0).color;
-    for (Cell c : this.board) {
-      if (!c.color.equals(firstColor)) {
-        return false;
-      }
+  // to test the BoardPool class
+  void testBoardPool(Tester t) {
+    // General case: Board released and acquired again
+    BoardPool pool = new BoardPool(2);
+    Board board = pool.acquire(10, 4, 1);
+    // Checking if a new board is filled from the seed
+    t.checkExpect(board.colors.toArray(), new FloodItGame(10, 4, 1).board.colors.toArray());
+    board.flood((board.floodColor + 1) % 4);
+    pool.release(board);
+    t.checkExpect(pool.size(), 1);
+    Board again = pool.acquire(10, 4, 2);
+    // Checking if the pooled board is reused and refilled from the new seed
+    t.checkExpect(again == board, true);
+    t.checkExpect(again.colors.toArray(), new FloodItGame(10, 4, 2).board.colors.toArray());
+    t.checkExpect(again.floodedCount, new FloodItGame(10, 4, 2).board.floodedCount);
+    t.checkExpect(pool.size(), 0);
+
+    // Edge case: Pooled board of another size or number of colors
+    pool.release(again);
+    // Checking if it is not handed out
+    t.checkExpect(pool.acquire(10, 5, 1) == again, false);
+    t.checkExpect(pool.acquire(9, 4, 1) == again, false);
+    t.checkExpect(pool.size(), 1);
+
+    // Edge case: Full pool
+    pool.release(new Board(3, 3));
+    pool.release(new Board(3, 3));
+    // Checking if boards past the capacity are dropped
+    t.checkExpect(pool.size(), 2);
+  }
+
+  // to test the GreedyStrategy, RandomStrategy and LookaheadStrategy classes
+  void testStrategies(Tester t) {
+    // General case: 3x3 board
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    FloodItGame game = new FloodItGame(3, 3, 0);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      game.board.setColorAt(i, colors[i]);
     }
-    return true;
+    game.board.resetRegion();
+    // Checking if greedy picks the color with the largest gain
+    t.checkExpect(new GreedyStrategy().choose(game.view, new Random(0)), 2);
+    // Checking if random only picks colors that grow the region
+    for (int seed = 0; seed < 20; seed++) {
+      t.checkExpect(game.board.gain(new RandomStrategy().choose(game.view, new Random(seed))) > 0,
+          true);
+    }
+
+    // Edge case: Single move left
+    game.play(2);
+    // Checking if both strategies pick the last color
+    t.checkExpect(new GreedyStrategy().choose(game.view, new Random(0)), 1);
+    t.checkExpect(new RandomStrategy().choose(game.view, new Random(0)), 1);
+    // Checking if lookahead picks it too
+    t.checkExpect(new LookaheadStrategy().choose(game.view, null), 1);
+
+    // General case: Lookahead on the 3x3 board
+    FloodItGame game1 = new FloodItGame(3, 3, 0);
+    for (int i = 0; i < 9; i++) {
+      game1.board.setColorAt(i, colors[i]);
+    }
+    game1.board.resetRegion();
+    // Checking if both moves reach 7 cells and the bigger first move wins
+    t.checkExpect(new LookaheadStrategy().choose(game1.view, null), 2);
+    // Checking if the view shows the game
+    t.checkExpect(game1.view.gain(1), 2);
+    t.checkExpect(game1.view.colorAt(6), 1);
+    t.checkExpect(game1.view.floodedCount(), 2);
+    t.checkExpect(game1.view.solverState().absorbedCells, 2);
+    // Edge case: View of a board that is not square
+    FloodItGame wide = new FloodItGame(new HexTopology(5, 3), 3, 0);
+    // Checking if the view gives both sides and the cell count
+    t.checkExpect(wide.view.width(), 5);
+    t.checkExpect(wide.view.height(), 3);
+    t.checkExpect(wide.view.cellCount(), 15);
   }
 
-  // On key method to reset the game using 'r' key
-  @Override
-  public void onKeyEvent(String key) {
-    if (key.equals("r")) {
-      this.reset();
+  // to test the Difficulty and BoardGenerator classes
+  void testBoardGenerator(Tester t) {
+    // General case: Par of the 3x3 board
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    board.resetRegion();
+    // Checking if it takes two moves
+    t.checkExpect(BoardGenerator.par(board), 2);
+    // Checking if par never needs more moves than greedy play
+    boolean atMostGreedy = true;
+    for (long seed = 0; seed < 20; seed++) {
+      atMostGreedy = atMostGreedy && BoardGenerator.par(14, 6, seed)
+          <= BatchRunner.playOut(14, 6, new GreedyStrategy(), seed).clicks;
+    }
+    t.checkExpect(atMostGreedy, true);
+
+    // General case: Seed for a band of par
+    Difficulty difficulty = new Difficulty(17, 18, 2);
+    Calibration calibration = BoardGenerator.calibrate(14, 6, difficulty, 0);
+    // Checking if the seed found is the first one in the band
+    t.checkExpect(difficulty.accepts(calibration.par), true);
+    t.checkExpect(BoardGenerator.par(14, 6, calibration.seed), calibration.par);
+    t.checkExpect(calibration.candidates, (int) calibration.seed + 1);
+    boolean firstInBand = true;
+    for (long seed = 0; seed < calibration.seed; seed++) {
+      firstInBand = firstInBand && !difficulty.accepts(BoardGenerator.par(14, 6, seed));
     }
+    t.checkExpect(firstInBand, true);
+    // Checking if one thread finds the same seed
+    ForkJoinPool one = new ForkJoinPool(1);
+    t.checkExpect(one.submit(() -> BoardGenerator.calibrate(14, 6, difficulty, 0).seed).join(),
+        calibration.seed);
+    one.shutdown();
+
+    // General case: Game generating boards for a difficulty
+    FloodItGame game = new FloodItGame(14, 6, 0);
+    game.calibrate(difficulty);
+    // Checking if the board and maxTries come from the calibrated seed
+    t.checkExpect(game.seed, calibration.seed);
+    t.checkExpect(game.maxTries, calibration.par + 2);
+    t.checkExpect(BoardGenerator.par(game.board), calibration.par);
+    game.reset(calibration.seed + 1);
+    // Checking if later boards meet the difficulty too
+    t.checkExpect(game.seed > calibration.seed, true);
+    t.checkExpect(game.maxTries - 2 >= 17 && game.maxTries - 2 <= 18, true);
+
+    // Edge case: Difficulty no board can meet
+    // Checking if generation gives up
+    t.checkException(new IllegalArgumentException(
+        "no 1x1 board with 3 colors and par 1 to 2 in 65536 seeds"), new BoardGenerator(),
+        "calibrate", 1, 3, new Difficulty(1, 2, 0), 0L);
+    // Edge case: Empty band
+    // Checking if it is refused
+    t.checkConstructorException(new IllegalArgumentException(
+        "bad difficulty: par 5 to 4, slack 0"), "Difficulty", 5, 4, 0);
   }
 
-  // Resets the board
-  public void reset() {
-    this.board = this.createBoard();
-    this.connectCells();
-    this.clicks = 0;
-    this.message = "";
-    this.elapsedTime = 0.0;
+  // to test the Tournament class
+  void testTournament(Tester t) {
+    // General case: Strategies played on the same boards
+    ArrayList<StrategyScore> scores = new Tournament()
+        .add("random", new RandomStrategy())
+        .add("greedy", new GreedyStrategy())
+        .add("lookahead", new LookaheadStrategy())
+        .add("solver", new HintStrategy(1000000))
+        .run(10, 4, 0, 40);
+    // Checking if every strategy played every game to the end
+    t.checkExpect(scores.size(), 4);
+    t.checkExpect(scores.get(1).games.sum(), 40L);
+    t.checkExpect(scores.get(1).finished.sum(), 40L);
+    // Checking if greedy matches the batch runner on the same seeds
+    BatchResult greedy = BatchRunner.run(10, 4, new GreedyStrategy(), 0, 40);
+    t.checkExpect(scores.get(1).wins.sum(), greedy.wins);
+    t.checkExpect(scores.get(1).meanClicks(), greedy.meanClicks());
+    // Checking if each decision was timed
+    t.checkExpect(scores.get(1).decisions.count(), greedy.totalClicks);
+    // Checking if the solver does better than random
+    t.checkExpect(scores.get(3).meanClicks() < scores.get(0).meanClicks(), true);
+    t.checkExpect(scores.get(0).toString().startsWith("random"), true);
+
+    // Edge case: Strategy that never grows the region
+    ArrayList<StrategyScore> stuck = new Tournament()
+        .add("stuck", (board, random) -> board.floodColor())
+        .run(5, 3, 0, 3);
+    // Checking if its games end as stalled losses
+    t.checkExpect(stuck.get(0).games.sum(), 3L);
+    t.checkExpect(stuck.get(0).finished.sum(), 0L);
+    t.checkExpect(stuck.get(0).winRate(), 0.0);
   }
 
-  // Method to change the board when the mouse clicks on a cell.
-  // Floods with color of the cell that the mouse clicked on
-  @Override
-  public void onMouseClicked(Posn pos) {
-    int tileSize = 20;
-    double x = pos.x / tileSize;
-    double y = pos.y / tileSize;
+  // to test the BatchResult class
+  void testBatchResult(Tester t) {
+    // General case: Totals of two batches
+    BatchResult result = new BatchResult(4, 3, 40, 0)
+        .combine(new BatchResult(6, 2, 60, 0));
+    result.nanos = 500000000;
+    // Checking if the rates are computed over both batches
+    t.checkExpect(result.winRate(), 0.5);
+    t.checkExpect(result.meanClicks(), 10.0);
+    t.checkExpect(result.gamesPerSecond(), 20.0);
 
-    if (x >= 0 && x < this.size && y >= 0 && y < this.size) {
+    // Edge case: Empty batch
+    BatchResult empty = new BatchResult(0, 0, 0, 0);
+    // Checking if the rates are 0
+    t.checkExpect(empty.winRate(), 0.0);
+    t.checkExpect(empty.meanClicks(), 0.0);
+    t.checkExpect(empty.gamesPerSecond(), 0.0);
+  }
 
-      Cell clickedCell = this.board.get(roundNumber(x * this.size + y));
-      this.flood(clickedCell.color);
+  // to test the BatchRunner class
+  void testBatchRunner(Tester t) {
+    // General case: Play out a single game
+    FloodItGame game = BatchRunner.playOut(10, 4, new GreedyStrategy(), 3);
+    // Checking if the game is played until the board is flooded
+    t.checkExpect(game.win(), true);
 
-      // Check if the game is won or lost. Set the message and reset the game.
-      if (this.win()) {
-        this.message = "Congrats! You won!";
-      }
-      else if (this.clicks >= this.maxTries) {
-        this.message = "Oh no, you lost!";
-      }
+    // General case: Batch of seeded games
+    BatchResult result = BatchRunner.run(10, 4, new GreedyStrategy(), 0, 100);
+    // Checking if every game is counted
+    t.checkExpect(result.games, 100L);
+    // Checking if the batch gives the same totals as playing the games in order
+    long clicks = 0;
+    for (int seed = 0; seed < 100; seed++) {
+      clicks += BatchRunner.playOut(10, 4, new GreedyStrategy(), seed).clicks;
     }
+    t.checkExpect(result.totalClicks, clicks);
+    // Checking if the time is measured
+    t.checkExpect(result.nanos > 0, true);
+
+    // Edge case: 1x1 boards are won without a click
+    BatchResult tiny = BatchRunner.run(1, 3, new RandomStrategy(), 0, 10);
+    // Checking if every game is won with no clicks
+    t.checkExpect(tiny.wins, 10L);
+    t.checkExpect(tiny.totalClicks, 0L);
   }
 
-  // to handle rounding errors for more precise clicking
-  public int roundNumber(double n) {
-    int casted = (int) n;
-    if (n - casted >= 0.50) {
-      return casted + 1;
+  // to test the ComponentGraph class
+  void testComponentGraph(Tester t) {
+    // General case: 3x3 board with four components
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
     }
-    else {
-      return casted;
+    board.resetRegion();
+    ComponentGraph graph = new ComponentGraph(board);
+    // Checking if the components are labeled in order of their first cell
+    t.checkExpect(graph.count, 4);
+    t.checkExpect(graph.labels, new int[] {0, 1, 2, 0, 2, 2, 3, 2, 2});
+    t.checkExpect(graph.sizes, new int[] {2, 1, 5, 1});
+    t.checkExpect(graph.colors, new int[] {0, 1, 2, 1});
+    // Checking if the top-left component touches the three others
+    t.checkExpect(Arrays.copyOfRange(graph.edges, graph.edgeStart[0], graph.edgeStart[1]),
+        new int[] {1, 2, 3});
+    // Checking if the two components of color 1 only touch the others
+    t.checkExpect(Arrays.copyOfRange(graph.edges, graph.edgeStart[3], graph.edgeStart[4]),
+        new int[] {0, 2});
+
+    // General case: State of a board after a move
+    board.flood(2);
+    SolverState state = graph.stateOf(board);
+    // Checking if the flooded components are absorbed
+    t.checkExpect(state.absorbedCells, 7);
+    t.checkExpect(state.absorbed.cardinality(), 2);
+    // Checking if the gains match the board
+    t.checkExpect(state.gains(), new int[] {0, 2, 0});
+
+    // Edge case: Single-colored board
+    ComponentGraph graph1 = new ComponentGraph(new Board(3, 1));
+    // Checking if there is one component and no edges
+    t.checkExpect(graph1.count, 1);
+    t.checkExpect(graph1.edges.length, 0);
+
+    // Edge case: Pairs of an eight-neighbor board 30000 cells on a side
+    long pairs = 4L * 30000 * 30000;
+    // Checking if they fail clearly instead of overflowing the array size
+    t.checkException(new IllegalArgumentException("too many component pairs for one array: "
+        + pairs), graph1, "pairArrayLength", pairs);
+    t.checkExpect(ComponentGraph.pairArrayLength(12), 12);
+  }
+
+  // to test the ComponentLabeler class
+  void testComponentLabeler(Tester t) {
+    // General case: 3x3 board labeled in one stripe
+    Board board = new Board(3, 3);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      board.setColorAt(i, colors[i]);
+    }
+    ComponentGraph graph = ComponentLabeler.label(board);
+    // Checking if the labels, sizes and edges match the sequential graph
+    t.checkExpect(graph.labels, new int[] {0, 1, 2, 0, 2, 2, 3, 2, 2});
+    t.checkExpect(graph.sizes, new int[] {2, 1, 5, 1});
+    t.checkExpect(graph.colors, new int[] {0, 1, 2, 1});
+    t.checkExpect(graph.edges, new ComponentGraph(board).edges);
+
+    // General case: Boards spanning several stripes, on four threads
+    ForkJoinPool four = new ForkJoinPool(4);
+    boolean same = true;
+    for (int numColors = 2; numColors <= 6; numColors += 2) {
+      Board big = new Board(300, numColors);
+      big.fillRandom(numColors);
+      ComponentGraph sequential = new ComponentGraph(big);
+      ComponentGraph parallel = four.submit(() -> ComponentLabeler.label(big)).join();
+      same = same && parallel.count == sequential.count
+          && Arrays.equals(parallel.labels, sequential.labels)
+          && Arrays.equals(parallel.sizes, sequential.sizes)
+          && Arrays.equals(parallel.colors, sequential.colors)
+          && Arrays.equals(parallel.firstCell, sequential.firstCell)
+          && Arrays.equals(parallel.edgeStart, sequential.edgeStart)
+          && Arrays.equals(parallel.edges, sequential.edges);
     }
+    four.shutdown();
+    // Checking if every component and edge matches the sequential graph
+    t.checkExpect(same, true);
+
+    // Edge case: Single-colored board, one component across every stripe
+    ComponentGraph graph1 = ComponentLabeler.label(new Board(200, 1));
+    // Checking if there is one component with every cell
+    t.checkExpect(graph1.count, 1);
+    t.checkExpect(graph1.sizes, new int[] {40000});
+    t.checkExpect(graph1.edges.length, 0);
+
+    // Edge case: Empty board
+    // Checking if there are no components
+    t.checkExpect(ComponentLabeler.label(new Board(0, 3)).count, 0);
   }
 
-  // to handle the timer's elapsed time with onTick()
-  @Override
-  public void onTick() {
-    this.elapsedTime++;
+  // to test the ComponentGraph class on every topology
+  void testTopologyGraph(Tester t) {
+    // General case: Graphs of random boards of every topology
+    boolean consistent = true;
+    for (String name : new String[] {"square", "eight", "hex", "torus"}) {
+      Board board = new Board(Topology.named(name, 15, 11), 3);
+      board.fillRandom(9);
+      board.resetRegion();
+      ComponentGraph graph = ComponentGraph.of(board);
+      int cells = 0;
+      for (int k = 0; k < graph.count; k++) {
+        cells += graph.sizes[k];
+      }
+      // the flooded region is the component of the top-left cell, and
+      // the frontier is made of the components touching it
+      int frontier = 0;
+      for (int e = graph.edgeStart[0]; e < graph.edgeStart[1]; e++) {
+        frontier += graph.sizes[graph.edges[e]];
+      }
+      consistent = consistent && cells == 165 && graph.sizes[0] == board.floodedCount
+          && frontier == board.frontierTotal();
+    }
+    // Checking if the components cover the board and match the flooded region
+    t.checkExpect(consistent, true);
+
+    // General case: Torus whose corners touch
+    // 0 1 0
+    // 1 1 1
+    // 0 1 0
+    Board torus = new Board(new TorusTopology(3, 3), 2);
+    int[] colors = {0, 1, 0, 1, 1, 1, 0, 1, 0};
+    for (int i = 0; i < 9; i++) {
+      torus.setColorAt(i, colors[i]);
+    }
+    ComponentGraph graph = new ComponentGraph(torus);
+    // Checking if the corners are one component touching the other
+    t.checkExpect(graph.count, 2);
+    t.checkExpect(graph.sizes, new int[] {4, 5});
+    t.checkExpect(graph.edges, new int[] {1, 0});
+
+    // Edge case: Hex board big enough to label in parallel
+    Board hex = new Board(new HexTopology(300, 300), 4);
+    hex.fillRandom(2);
+    // Checking if it is labeled through its own neighbors
+    t.checkExpect(ComponentGraph.of(hex).labels, new ComponentGraph(hex).labels);
   }
 
-  // to initialize a new FloodItWorld with the give size and
-  // place each cell in this FloodItWorld's board
-  @Override
-  public WorldScene makeScene() {
-    int cellSize = 20;
-    int buffer = 10;
-    int tileSize = 20;
-    int footerConst = 50;
-    int alignTilesConstant = (tileSize * 3) / 4;
-    WorldScene scene = new WorldScene(this.size * 20 + buffer, this.size * 20 + footerConst);
-    for (Cell c : this.board) {
-      scene.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, c.color),
-          c.x * tileSize + alignTilesConstant, c.y * tileSize + alignTilesConstant);
+  // to test the SolverState class
+  void testSolverState(Tester t) {
+    // General case: Play moves on the graph of a board
+    FloodItGame game = new FloodItGame(20, 5, 11);
+    SolverState state = game.componentGraph().stateOf(game.board);
+    int color = Solver.greedyMove(state);
+    SolverState next = state.play(color);
+    game.play(color);
+    // Checking if the state absorbs the same cells as the board
+    t.checkExpect(next.absorbedCells, game.board.floodedCount);
+    // Checking if the original state is unchanged
+    t.checkExpect(state.moves, 0);
+    t.checkExpect(next.moves, 1);
+    t.checkExpect(next.firstMove, color);
+    // Checking if the gains of the state match the board
+    for (int c = 0; c < 5; c++) {
+      t.checkExpect(next.gains()[c], game.board.gain(c));
     }
 
-    double sizingConst = this.size * 1.5;
-    String restartMsg = "Press 'r' to restart.";
+    // Edge case: Playing until the board is flooded
+    SolverState done = Solver.greedy(state);
+    // Checking if every cell is absorbed
+    t.checkExpect(done.solved(), true);
+    t.checkExpect(done.absorbedCells, 400);
+  }
 
-    // Display the win/loss message if it exists
-    if (!this.message.isEmpty()) {
-      scene.placeImageXY(
-          new OverlayOffsetImage(new TextImage(this.message, Math.max(sizingConst, 7.5), Color.RED),
-              0.0, this.size * 2, new TextImage(restartMsg, Math.max(sizingConst, 7.5), Color.RED)),
-          (this.size * tileSize) / 2, (this.size * tileSize) / 2);
+  // to test the Solver class
+  void testSolver(Tester t) {
+    // General case: 3x3 board solved in two moves
+    // 0 1 2
+    // 0 2 2
+    // 1 2 2
+    FloodItGame game = new FloodItGame(3, 3, 0);
+    int[] colors = {0, 1, 2, 0, 2, 2, 1, 2, 2};
+    for (int i = 0; i < 9; i++) {
+      game.board.setColorAt(i, colors[i]);
     }
+    game.board.resetRegion();
+    Hint hint = game.hint(1000000000);
+    // Checking if the solver suggests a first move of an optimal solution
+    t.checkExpect(hint.color == 1 || hint.color == 2, true);
+    // Checking if one move is left after it
+    t.checkExpect(hint.movesLeft, 1);
 
-    // E.C: Added a score tracker!
-    scene.placeImageXY(
-        new TextImage("Clicks: " + this.clicks + "/" + this.maxTries, pickFontSize(sizingConst),
-            Color.BLACK),
-        (this.size * tileSize / 4), (int) (this.size * cellSize + footerConst / 2));
+    // General case: Beam search is never worse than greedy play
+    FloodItGame game1 = new FloodItGame(30, 6, 5);
+    SolverState start = game1.componentGraph().stateOf(game1.board);
+    Hint beam = Solver.beam(start, Solver.BEAM_WIDTH, 1000000000);
+    // Checking if the estimate is at most the greedy number of moves
+    t.checkExpect(beam.movesLeft + 1 <= Solver.greedy(start).moves, true);
+    // Checking if following the hints floods the board in the estimated moves
+    int moves = 0;
+    while (!game1.win()) {
+      game1.play(game1.hint(1000000000).color);
+      moves++;
+    }
+    t.checkExpect(moves <= beam.movesLeft + 1, true);
 
-    // E.C: Displayed the elapsed time!
-    scene.placeImageXY(
-        new TextImage("Time: " + (int) this.elapsedTime + "s", pickFontSize(sizingConst),
-            Color.BLACK),
-        (this.size * tileSize * 3 / 4), (int) (this.size * cellSize + footerConst / 2));
+    // Edge case: Board already flooded
+    FloodItGame game2 = new FloodItGame(1, 3, 0);
+    // Checking if no moves are left
+    t.checkExpect(game2.hint(1000000).movesLeft, 0);
 
-    return scene;
+    // Edge case: Large board with a short budget
+    FloodItGame game3 = new FloodItGame(200, 6, 1);
+    long start3 = System.nanoTime();
+    Hint hint3 = game3.hint(50000000);
+    // Checking if a useful move is found
+    t.checkExpect(game3.board.gain(hint3.color) > 0, true);
+    // Checking if the search stays near its budget
+    t.checkExpect(System.nanoTime() - start3 < 2000000000L, true);
   }
 
-  // to pick the font size value for the score tracker and timer based on the
-  // sizingConst
-  public int pickFontSize(double sizingConst) {
-    if (sizingConst < 10) {
-      return 10;
+  // to test the SaveFile class
+  void testSaveFile(Tester t) {
+    try {
+      Path path = Files.createTempFile("flood-it", ".sav");
+      // General case: Game in progress with 4 bits per cell and an odd cell count
+      FloodItWorld world = new FloodItWorld(9, 5, 4);
+      world.game.play((world.game.board.floodColor + 1) % 5);
+      world.game.play((world.game.board.floodColor + 1) % 5);
+      world.game.tick();
+      SaveFile.save(world, path);
+      // Checking if the file holds the header, palette and two cells per byte
+      t.checkExpect(Files.size(path), 48L + 4 * 5 + 41);
+      FloodItWorld loaded = SaveFile.load(path);
+      // Checking if the game state is restored
+      t.checkExpect(loaded.game.size, 9);
+      t.checkExpect(loaded.game.numColors, 5);
+      t.checkExpect(loaded.game.seed, 4L);
+      t.checkExpect(loaded.game.clicks, 2);
+      t.checkExpect(loaded.game.maxTries, world.game.maxTries);
+      t.checkExpect(loaded.game.elapsedTime, 1.0);
+      t.checkExpect(loaded.colors, world.colors);
+      // Checking if every cell has its color and the flooded region is restored
+      t.checkExpect(IntStream.range(0, 81)
+          .allMatch(i -> loaded.game.board.colorAt(i) == world.game.board.colorAt(i)), true);
+      t.checkExpect(loaded.game.board.flooded, world.game.board.flooded);
+      t.checkExpect(loaded.game.board.gain(0), world.game.board.gain(0));
+
+      // General case: 8 bits per cell
+      FloodItGame game = new FloodItGame(10, 20, 6);
+      ArrayList<Color> palette = new FloodItWorld(1, 20, 6).colors;
+      SaveFile.write(game, palette, path);
+      // Checking if the file holds one cell per byte
+      t.checkExpect(Files.size(path), 48L + 4 * 20 + 100);
+      ArrayList<Color> loadedPalette = new ArrayList<>();
+      FloodItGame loadedGame = SaveFile.read(path, loadedPalette);
+      // Checking if the cells and palette are restored
+      t.checkExpect(loadedGame.board.colors.toArray(), game.board.colors.toArray());
+      t.checkExpect(loadedPalette, palette);
+
+      // Edge case: Won game
+      FloodItWorld won = new FloodItWorld(1, 3, 0);
+      SaveFile.save(won, path);
+      // Checking if the loaded world shows the win
+      t.checkExpect(SaveFile.load(path).message, "Congrats! You won!");
+
+      // Edge case: File that is not a save file
+      Files.write(path, new byte[64]);
+      // Checking if loading fails
+      t.checkException(new IOException("Not a Flood It save file: " + path), new SaveFile(),
+          "load", path);
+
+      // Edge case: Header with a size or number of colors out of range
+      int[][] headers = {{50000, 4}, {10, -1}, {10, 0}, {10, 200}};
+      for (int[] fields : headers) {
+        SaveFile.write(game, palette, path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          ByteBuffer bad = ByteBuffer.allocate(8).putInt(fields[0]).putInt(fields[1]);
+          bad.flip();
+          channel.write(bad, 8);
+        }
+        // Checking if loading fails as a corrupt file
+        t.checkException(new IOException("Corrupt save file: " + path), new SaveFile(), "load",
+            path);
+      }
+      Files.delete(path);
     }
-    else {
-      return (int) Math.min(sizingConst, 15);
+    catch (IOException e) {
+      t.checkExpect(e, null);
     }
   }
-}
 
-//Examples and tests for Flood It
-class ExamplesFloodIt {
-  // to test the initColors method
-  void testInitColors(Tester t) {
-    // General case: 5 unique colors
-    FloodItWorld world = new FloodItWorld(10, 5);
-    // Checking if the size of the colors list is 5
-    t.checkExpect(world.colors.size(), 5);
-    // Checking if all colors are unique
-    t.checkExpect(world.colors.stream().distinct().count(), 5L);
+  // to test the GameSession class
+  void testGameSession(Tester t) {
+    // General case: Play a move
+    GameSession session = new GameSession(7, new FloodItGame(10, 4, 3));
+    int color = (session.game.board.floodColor + 1) % 4;
+    String state = session.flood(color);
+    // Checking if the move is played and reported
+    t.checkExpect(LoadClient.field(state, "id"), "7");
+    t.checkExpect(LoadClient.field(state, "clicks"), "1");
+    t.checkExpect(LoadClient.field(state, "color"), "" + color);
+    // Checking if the clock is counted
+    t.checkExpect(LoadClient.field(session.tick(), "time"), "1");
+    // Checking if a reset starts over on the given seed
+    state = session.reset(9);
+    t.checkExpect(LoadClient.field(state, "seed"), "9");
+    t.checkExpect(LoadClient.field(state, "clicks"), "0");
+    // Checking if a reset without a seed takes the next one
+    t.checkExpect(LoadClient.field(session.reset(), "seed"), "10");
+    // Checking if the lock is released after each request
+    t.checkExpect(session.lock.isLocked(), false);
 
-    // Edge case: 1 color
-    FloodItWorld world1 = new FloodItWorld(10, 1);
-    // Checking if the size of the colors list is 1
-    t.checkExpect(world1.colors.size(), 1);
+    // Edge case: Color out of range
+    // Checking if the move is refused
+    t.checkException(new IllegalArgumentException("color out of range: 4"), session, "flood",
+        4);
 
-    // Edge case: Maximum colors (26 colors)
-    FloodItWorld worldMax = new FloodItWorld(10, 26);
-    // Checking if the size of the colors list is 26
-    t.checkExpect(worldMax.colors.size(), 26);
-    // Checking if all colors are unique
-    t.checkExpect(worldMax.colors.stream().distinct().count(), 26L);
+    // Edge case: Closed session
+    BoardPool pool = new BoardPool(1);
+    session.close(pool);
+    // Checking if its board is given back and requests are refused
+    t.checkExpect(pool.size(), 1);
+    t.checkException(new IllegalArgumentException("session closed: 7"), session, "tick");
+    // Checking if a reset without a seed is refused instead of failing
+    t.checkException(new IllegalArgumentException("session closed: 7"), session, "reset");
+
+    // Edge case: Moves after the game is won
+    GameSession won = new GameSession(1, new FloodItGame(1, 3, 0));
+    // Checking if no click is counted
+    t.checkExpect(LoadClient.field(won.flood(1), "clicks"), "0");
+    t.checkExpect(LoadClient.field(won.state(), "won"), "true");
   }
 
-  // to test the createBoard method
-  void testCreateBoard(Tester t) {
-    // General case: 10x10 board
-    FloodItWorld world = new FloodItWorld(10, 5);
-    // Checking if the size of the board is 100 cells
-    t.checkExpect(world.board.size(), 100);
-    // Checking if all cells have valid colors
-    t.checkExpect(world.board.stream().allMatch(c -> world.colors.contains(c.color)), true);
+  // to test the GameServer and LoadClient classes
+  void testGameServer(Tester t) {
+    try {
+      GameServer server = new GameServer(0);
+      // General case: Requests answered without going through HTTP
+      HashMap<String, String> params = GameServer.parseQuery("size=5&colors=3&seed=2");
+      String state = server.answer("/new", params);
+      String id = LoadClient.field(state, "id");
+      // Checking if a session is opened with the given board
+      t.checkExpect(id, "1");
+      t.checkExpect(LoadClient.field(state, "size"), "5");
+      t.checkExpect(server.sessions.size(), 1);
+      // Checking if requests reach the session
+      t.checkExpect(LoadClient.field(server.answer("/tick", GameServer.parseQuery("id=1")),
+          "time"), "1");
+      // Checking if closing drops the session
+      server.answer("/close", GameServer.parseQuery("id=1"));
+      t.checkExpect(server.sessions.size(), 0);
 
-    // Edge case: 0x0 board
-    FloodItWorld world0 = new FloodItWorld(0, 5);
-    // Checking if the size of the board is 0 cells
-    t.checkExpect(world0.board.size(), 0);
+      // Edge case: Unknown session and path
+      // Checking if there is no answer
+      t.checkExpect(server.answer("/state", GameServer.parseQuery("id=1")), null);
+      t.checkExpect(server.answer("/nope", GameServer.parseQuery(null)), null);
+      // Edge case: Parameter that is not a number
+      // Checking if the request is refused
+      t.checkException(new IllegalArgumentException("bad id: x"), server, "answer", "/state",
+          GameServer.parseQuery("id=x"));
+      // Edge case: Board with too many cells for a session
+      // Checking if it is refused before allocating
+      t.checkException(new IllegalArgumentException("bad board: size 20000, colors 6"), server,
+          "answer", "/new", GameServer.parseQuery("size=20000"));
+      // Edge case: Size past the range of an int
+      // Checking if it is refused instead of wrapping around
+      t.checkException(new IllegalArgumentException("bad size: 4294967310"), server, "answer",
+          "/new", GameServer.parseQuery("size=4294967310"));
+      // Edge case: More sessions than the server takes
+      server.maxSessions = 2;
+      server.answer("/new", params);
+      server.answer("/new", params);
+      // Checking if the next one is refused as busy
+      t.checkException(new RejectedExecutionException("server busy: 2 sessions"), server,
+          "answer", "/new", params);
+      // Checking if sessions in use are not ended as idle
+      t.checkExpect(server.evictIdle(System.nanoTime()), 0);
+      // Edge case: Session left without a close
+      GameSession idle = server.sessions.get(3L);
+      Board idleBoard = idle.game.board;
+      idle.lastUsed = System.nanoTime() - server.idleNanos - 1;
+      server.answer("/new", params);
+      // Checking if it is ended to make room, and its board reused
+      t.checkExpect(idle.game, null);
+      t.checkExpect(server.sessions.containsKey(3L), false);
+      t.checkExpect(server.sessions.get(4L).game.board == idleBoard, true);
+      // Checking if a sweep later on ends the rest and pools their boards
+      int pooled = server.pool.size();
+      t.checkExpect(server.evictIdle(System.nanoTime() + server.idleNanos + 1), 2);
+      t.checkExpect(server.sessions.size(), 0);
+      t.checkExpect(server.pool.size(), pooled + 2);
+      server.maxSessions = GameServer.MAX_SESSIONS;
 
-    // Edge case: 1x1 board
-    FloodItWorld world1 = new FloodItWorld(1, 5);
-    // Checking if the size of the board is 1 cell
-    t.checkExpect(world1.board.size(), 1);
-    // Checking if the cell has a valid color
-    t.checkExpect(world1.board.stream().allMatch(c -> world1.colors.contains(c.color)), true);
+      // General case: Sessions played concurrently over HTTP
+      server.start();
+      LoadResult result = LoadClient.run(server.port(), 20, 5, 6, 3);
+      long[] latencies = result.latencies;
+      // Checking if every move was answered and every session closed
+      t.checkExpect(latencies.length, 100);
+      t.checkExpect(result.failedSessions, 0);
+      t.checkExpect(server.sessions.size(), 0);
+      // Checking if the boards of closed sessions are kept for reuse
+      t.checkExpect(server.pool.size() > 0, true);
+      // Checking if the latencies are sorted
+      t.checkExpect(LoadClient.percentile(latencies, 0.5)
+          <= LoadClient.percentile(latencies, 0.99), true);
+
+      // Edge case: Request that fails inside the server
+      FloodItGame broken = new FloodItGame(3, 3, 0);
+      broken.board = null;
+      server.sessions.put(99L, new GameSession(99, broken));
+      HttpClient client = HttpClient.newHttpClient();
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+          URI.create("http://127.0.0.1:" + server.port() + "/state?id=99")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      // Checking if it is answered with an error instead of hanging
+      t.checkExpect(response.statusCode(), 500);
+      // Edge case: New session on a full server
+      server.maxSessions = 1;
+      response = client.send(HttpRequest.newBuilder(
+          URI.create("http://127.0.0.1:" + server.port() + "/new")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      // Checking if it is answered as busy
+      t.checkExpect(response.statusCode(), 503);
+      server.maxSessions = GameServer.MAX_SESSIONS;
+
+      // Edge case: Sessions the server refuses
+      LoadResult refused = LoadClient.run(server.port(), 3, 5, 20000, 3);
+      // Checking if they are counted as failed instead of dropped
+      t.checkExpect(refused.failedSessions, 3);
+      t.checkExpect(refused.latencies.length, 0);
+      server.stop();
+    }
+    catch (IOException | InterruptedException e) {
+      t.checkExpect(e, null);
+    }
+
+    // Edge case: Percentile of no latencies
+    // Checking if it is 0
+    t.checkExpect(LoadClient.percentile(new long[0], 0.99), 0L);
   }
 
-  // to test the connectCells method
-  void testConnectCells(Tester t) {
-    // General case: 3x3 board
-    FloodItWorld world = new FloodItWorld(3, 3);
-    Cell c = world.board.get(4); // The middle cell
-    // Checking if the top cell is correctly connected
-    t.checkExpect(c.top, world.board.get(1));
-    // Checking if the bottom cell is correctly connected
-    t.checkExpect(c.bottom, world.board.get(7));
-    // Checking if the left cell is correctly connected
-    t.checkExpect(c.left, world.board.get(3));
-    // Checking if the right cell is correctly connected
-    t.checkExpect(c.right, world.board.get(5));
+  // to test the LatencyHistogram class
+  void testLatencyHistogram(Tester t) {
+    // General case: Durations in a few buckets
+    LatencyHistogram histogram = new LatencyHistogram("test");
+    for (int i = 0; i < 98; i++) {
+      histogram.record(100);
+    }
+    histogram.record(5000);
+    histogram.record(1000000);
+    // Checking if every duration is counted
+    t.checkExpect(histogram.count(), 100L);
+    // Checking if percentiles give the top of the bucket, capped at the max
+    t.checkExpect(histogram.percentile(0.5), 127L);
+    t.checkExpect(histogram.percentile(0.99), 8191L);
+    t.checkExpect(histogram.percentile(1.0), 1000000L);
+    // Checking if the report names the histogram
+    t.checkExpect(histogram.toString().startsWith("test"), true);
 
-    // Edge case: 1x1 board (no neighbors)
-    FloodItWorld world1 = new FloodItWorld(1, 1);
-    Cell c1 = world1.board.get(0);
-    // Checking if the top cell is null
-    t.checkExpect(c1.top, null);
-    // Checking if the bottom cell is null
-    t.checkExpect(c1.bottom, null);
-    // Checking if the left cell is null
-    t.checkExpect(c1.left, null);
-    // Checking if the right cell is null
-    t.checkExpect(c1.right, null);
+    // Edge case: Empty and cleared histograms
+    histogram.clear();
+    // Checking if there is nothing to report
+    t.checkExpect(histogram.count(), 0L);
+    t.checkExpect(histogram.percentile(0.99), 0L);
+    // Edge case: Duration of 0
+    histogram.record(0);
+    // Checking if it is counted in the first bucket
+    t.checkExpect(histogram.buckets.get(0), 1L);
+  }
 
-    // Edge case: 2x2 board
-    FloodItWorld world2 = new FloodItWorld(2, 2);
-    Cell c2 = world2.board.get(0);
-    // Checking if the top cell is null
-    t.checkExpect(c2.top, null);
-    // Checking if the bottom cell is correctly connected
-    t.checkExpect(c2.bottom, world2.board.get(2));
-    // Checking if the left cell is null
-    t.checkExpect(c2.left, null);
-    // Checking if the right cell is correctly connected
-    t.checkExpect(c2.right, world2.board.get(1));
-  }
-
-  // to test the flood method
-  void testFlood(Tester t) {
-    // General case: Change the color of the top-left cell
-    FloodItWorld world = new FloodItWorld(3, 3);
-    Color newColor = Color.BLUE;
-    world.board.get(0).color = Color.RED;
-    world.flood(newColor);
-    // Checking if the color of the top-left cell is changed
-    t.checkExpect(world.board.get(0).color, newColor);
+  // to test the Metrics class and the events of the hot paths
+  void testMetrics(Tester t) {
+    // General case: Metrics enabled while playing
+    Metrics.clear();
+    Metrics.enable(true);
+    FloodItGame game = new FloodItGame(10, 4, 3);
+    int color = (game.board.floodColor + 1) % 4;
+    int gain = game.board.gain(color);
+    game.play(color);
+    game.win();
+    new FloodItWorld(game, new FloodItWorld(1, 4, 3).colors).makeScene();
+    Metrics.enable(false);
+    // Checking if the moves, boards and frames are timed
+    t.checkExpect(Metrics.FLOOD.count(), 1L);
+    t.checkExpect(Metrics.CREATE_BOARD.count(), 2L);
+    t.checkExpect(Metrics.MAKE_SCENE.count(), 1L);
+    // Checking if the cells and win checks are counted
+    t.checkExpect(Metrics.CELLS_RECOLORED.sum(), (long) gain);
+    t.checkExpect(Metrics.CELLS_VISITED.sum() >= gain, true);
+    t.checkExpect(Metrics.WIN_CHECKS.sum() >= 1, true);
+    t.checkExpect(Metrics.report().contains("createBoard"), true);
 
-    // Edge case: Flooding with the same color
-    FloodItWorld world1 = new FloodItWorld(3, 3);
-    Color initialColor = world1.board.get(0).color;
-    world1.flood(initialColor);
-    // Checking if the color of the top-left cell is unchanged
-    t.checkExpect(world1.board.get(0).color, initialColor);
+    // Edge case: Metrics disabled
+    game.play((game.board.floodColor + 1) % 4);
+    // Checking if nothing more is recorded
+    t.checkExpect(Metrics.FLOOD.count(), 1L);
+    Metrics.clear();
 
-    // Edge case: Flooding a larger board
-    FloodItWorld world2 = new FloodItWorld(5, 5);
-    Color newColor2 = Color.GREEN;
-    world2.board.get(0).color = Color.YELLOW;
-    world2.flood(newColor2);
-    // Checking if the color of the top-left cell is changed
-    t.checkExpect(world2.board.get(0).color, newColor2);
+    // General case: Flight Recorder recording of a move
+    try (Recording recording = new Recording()) {
+      recording.enable(FloodEvent.class).withoutThreshold();
+      recording.disable(CreateBoardEvent.class);
+      recording.start();
+      // Checking if the hot paths are measured while recording
+      t.checkExpect(Metrics.active, true);
+      FloodItGame game1 = new FloodItGame(10, 4, 3);
+      int color1 = new GreedyStrategy().choose(game1.view, null);
+      int gain1 = game1.board.gain(color1);
+      game1.play(color1);
+      recording.stop();
+      Path path = Files.createTempFile("flood-it", ".jfr");
+      recording.dump(path);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+      Files.delete(path);
+      // Checking if the move was recorded with what it changed
+      t.checkExpect(events.size(), 1);
+      t.checkExpect(events.get(0).getInt("cellsRecolored"), gain1);
+      t.checkExpect(events.get(0).getInt("color"), color1);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+    // Checking if measuring stops with the recording
+    t.checkExpect(Metrics.active, false);
+    t.checkExpect(Metrics.FLOOD.count(), 0L);
   }
 
-  // to test the floodHelp method
-  void testFloodHelp(Tester t) {
-    // General case: Change the color of connected cells
-    FloodItWorld world = new FloodItWorld(3, 3);
-    Color oldColor = Color.RED;
-    Color newColor = Color.BLUE;
-    world.board.get(0).color = oldColor;
-    world.board.get(1).color = oldColor;
-    world.floodHelp(world.board.get(0), oldColor, newColor);
-    // Checking if the color of the top-left cell is changed
-    t.checkExpect(world.board.get(0).color, newColor);
-    // Checking if the color of the adjacent cell is changed
-    t.checkExpect(world.board.get(1).color, newColor);
+  // to test the Puzzle and PuzzleStore classes
+  void testPuzzleStore(Tester t) {
+    try {
+      Path path = Files.createTempFile("flood-it", ".db");
+      // General case: Store built from a range of seeds
+      PuzzleStore.build(path, 8, 4, 100, 20);
+      PuzzleStore store = PuzzleStore.open(path);
+      Puzzle expected = PuzzleStore.solve(8, 4, 107);
+      Puzzle puzzle = store.get(expected.id);
+      // Checking if every puzzle is stored and found by its id
+      t.checkExpect(store.count, 20);
+      t.checkExpect(puzzle.seed, 107L);
+      t.checkExpect(puzzle.palette, expected.palette);
+      t.checkExpect(puzzle.moves, expected.moves);
+      t.checkExpect(puzzle.par, puzzle.moves.length);
+      // Checking if the id is the hash of the board and palette
+      t.checkExpect(PuzzleStore.hash(puzzle.board(), puzzle.palette), puzzle.id);
+      // Checking if the solution floods the board in par moves
+      FloodItGame game = new FloodItGame(puzzle.board(), puzzle.seed);
+      for (int move : puzzle.moves) {
+        game.play(move);
+      }
+      t.checkExpect(game.win(), true);
+      t.checkExpect(game.clicks, puzzle.par);
+      // Checking if par is no worse than greedy play
+      t.checkExpect(puzzle.par <= BatchRunner.playOut(8, 4, new GreedyStrategy(), 107).clicks,
+          true);
+      // Checking if a second lookup comes from the cache
+      t.checkExpect(store.get(expected.id) == puzzle, true);
+      // Checking if a world plays the puzzle's board and palette
+      FloodItWorld world = store.world(expected.id);
+      t.checkExpect(world.colors, puzzle.palette);
+      t.checkExpect(world.game.board.colors.toArray(), puzzle.board().colors.toArray());
 
-    // Edge case: No connected cells with the same color
-    FloodItWorld world1 = new FloodItWorld(3, 3);
-    world1.board.get(0).color = Color.RED;
-    world1.board.get(1).color = Color.YELLOW;
-    world1.floodHelp(world1.board.get(0), Color.RED, Color.BLUE);
-    // Checking if the color of the top-left cell is changed
-    t.checkExpect(world1.board.get(0).color, Color.BLUE);
-    // Checking if the color of the adjacent cell is unchanged
-    t.checkExpect(world1.board.get(1).color, Color.YELLOW);
+      // Edge case: Unknown id
+      // Checking if there is no puzzle
+      t.checkExpect(store.get(expected.id + 1), null);
+      t.checkExpect(store.world(expected.id + 1), null);
+
+      // Edge case: Same board twice
+      PuzzleStore.write(path, new Puzzle[] {expected, expected});
+      // Checking if it is stored once
+      t.checkExpect(PuzzleStore.open(path).count, 1);
+      t.checkExpect(PuzzleStore.open(path).get(expected.id).moves, expected.moves);
+
+      // Edge case: Damaged stores, of the one puzzle in two slots
+      // with its entry right after them
+      Path bad = Files.createTempFile("flood-it", ".db");
+      PuzzleStore.write(bad, new Puzzle[] {expected});
+      byte[] bytes = Files.readAllBytes(bad);
+      ByteBuffer.wrap(bytes).putInt(48, 0);
+      Files.write(bad, bytes);
+      // Checking if an entry of size 0 fails to read
+      t.checkException(new IOException("Corrupt puzzle store entry: " + expected.id),
+          PuzzleStore.open(bad), "get", expected.id);
+      ByteBuffer.wrap(bytes).putInt(48, 8).putInt(64, -1);
+      Files.write(bad, bytes);
+      // Checking if a negative par fails to read
+      t.checkException(new IOException("Corrupt puzzle store entry: " + expected.id),
+          PuzzleStore.open(bad), "get", expected.id);
+      ByteBuffer.wrap(bytes).putInt(64, expected.par);
+      Files.write(bad, Arrays.copyOf(bytes, 70));
+      // Checking if an entry cut short fails to read
+      t.checkException(new IOException("Corrupt puzzle store entry: " + expected.id),
+          PuzzleStore.open(bad), "get", expected.id);
+      ByteBuffer.wrap(bytes).putLong(16, expected.id + 2).putLong(32, expected.id + 3);
+      Files.write(bad, bytes);
+      // Checking if a lookup in a table with no empty slot ends
+      t.checkExpect(PuzzleStore.open(bad).get(expected.id), null);
+      ByteBuffer.wrap(bytes).putInt(12, 3);
+      Files.write(bad, bytes);
+      // Checking if more puzzles than slots fails to open
+      t.checkException(new IOException("Corrupt puzzle store: " + bad), new PuzzleStore(null,
+          0, 0), "open", bad);
+      Files.delete(bad);
+
+      // Edge case: File that is not a store
+      Files.write(path, new byte[64]);
+      // Checking if opening fails
+      t.checkException(new IOException("Not a puzzle store: " + path), new PuzzleStore(null, 0,
+          0), "open", path);
+      Files.delete(path);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
   }
 
-  // to test the resetFloodedStatus method
-  void testResetFloodedStatus(Tester t) {
-    // General case: Reset flooded status of all cells
-    FloodItWorld world = new FloodItWorld(3, 3);
-    world.board.get(0).flooded = true;
-    world.board.get(1).flooded = true;
-    world.resetFloodedStatus();
-    // Checking if the flooded status of the top-left cell is reset
-    t.checkExpect(world.board.get(0).flooded, false);
-    // Checking if the flooded status of the adjacent cell is reset
-    t.checkExpect(world.board.get(1).flooded, false);
-    // Edge case: No cells are flooded
-    FloodItWorld world1 = new FloodItWorld(3, 3);
-    world1.resetFloodedStatus();
-    // Checking if the flooded status of all cells is false
-    t.checkExpect(world1.board.stream().allMatch(c -> !c.flooded), true);
+  // to test the MoveRecord, ReplayLog and ReplayAnalyzer classes
+  void testReplayLog(Tester t) {
+    try {
+      Path path = Files.createTempFile("flood-it", ".log");
+      ReplayLog log = ReplayLog.open(path);
+      // General case: Game won with greedy moves, one second apart
+      FloodItGame won = new FloodItGame(6, 3, 11);
+      won.enableRecording();
+      won.enableUndo(1 << 20);
+      GreedyStrategy greedy = new GreedyStrategy();
+      won.play(greedy.choose(won.view, null));
+      won.undo();
+      while (!won.win()) {
+        won.tick();
+        won.play(greedy.choose(won.view, null));
+      }
+      // Checking if an undone move is taken back out of the record
+      t.checkExpect(won.recording.moves(), won.clicks);
+      t.checkExpect(won.recording.ticks.get(0), 1);
+      log.append(won.recording, (int) won.elapsedTime + 5);
+      // General case: Game left after one move, at second 200
+      FloodItGame left = new FloodItGame(6, 3, 12);
+      left.enableRecording();
+      left.elapsedTime = 200;
+      left.play((left.board.floodColor + 1) % 3);
+      log.append(left.recording, 200);
+      ReplayAnalyzer analyzer = new ReplayAnalyzer();
+      // Checking if both games are replayed into the stats of their board
+      t.checkExpect(analyzer.update(path), 2);
+      ReplayStats stats = analyzer.stats.get(6L << 32 | 3);
+      t.checkExpect(stats.games, 2L);
+      t.checkExpect(stats.wins, 1L);
+      t.checkExpect(stats.winRate(), 0.5);
+      t.checkExpect(stats.clicks, won.clicks + 1L);
+      t.checkExpect(stats.clicksPercentile(0.5), 1);
+      t.checkExpect(stats.clicksPercentile(1.0), won.clicks);
+      // Checking if the time to win is the second of the winning move
+      t.checkExpect(stats.meanTimeToWin(), won.elapsedTime);
+      t.checkExpect(stats.maxWinTicks, (long) won.elapsedTime);
+
+      // General case: Games appended after an update
+      FloodItGame other = new FloodItGame(4, 2, 13);
+      other.enableRecording();
+      other.play((other.board.floodColor + 1) % 2);
+      log.append(other.recording, 0);
+      // Checking if only the new game is read
+      t.checkExpect(analyzer.update(path), 1);
+      t.checkExpect(analyzer.stats.size(), 2);
+      t.checkExpect(stats.games, 2L);
+
+      // General case: Second log read by the same analyzer
+      Path second = Files.createTempFile("flood-it", ".log");
+      ReplayLog secondLog = ReplayLog.open(second);
+      secondLog.append(left.recording, 200);
+      secondLog.close();
+      // Checking if it is read from its own start, not the first log's offset
+      t.checkExpect(analyzer.update(second), 1);
+      t.checkExpect(stats.games, 3L);
+      // Checking if each log keeps its own offset
+      t.checkExpect(analyzer.update(path), 0);
+      t.checkExpect(analyzer.update(second), 0);
+      t.checkExpect(analyzer.offset(second), Files.size(second));
+      Files.delete(second);
+
+      // Edge case: Record cut off at the end of the log
+      long end = Files.size(path);
+      log.append(won.recording, 0);
+      log.close();
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(end + ReplayLog.HEADER_BYTES + 1);
+      }
+      // Checking if it is left for the next update
+      t.checkExpect(analyzer.update(path), 0);
+      t.checkExpect(analyzer.offset(path), end);
+      t.checkExpect(stats.games, 3L);
+
+      // Edge case: File that is not a replay log
+      Files.write(path, new byte[64]);
+      // Checking if reading fails
+      t.checkException(new IOException("Corrupt replay log at byte 0"), new ReplayAnalyzer(),
+          "update", path);
+
+      // General case: Server sessions logging each board when it is left
+      Files.delete(path);
+      log = ReplayLog.open(path);
+      GameServer server = new GameServer(0, log);
+      server.answer("/new", GameServer.parseQuery("size=5&colors=3&seed=2"));
+      server.answer("/flood", GameServer.parseQuery("id=1&color=1"));
+      server.answer("/flood", GameServer.parseQuery("id=1&color=2"));
+      server.answer("/reset", GameServer.parseQuery("id=1&seed=3"));
+      server.answer("/close", GameServer.parseQuery("id=1"));
+      server.answer("/new", GameServer.parseQuery("size=5&colors=3&seed=4"));
+      server.answer("/close", GameServer.parseQuery("id=2"));
+      log.close();
+      ReplayAnalyzer served = new ReplayAnalyzer();
+      // Checking if only the board with moves was logged
+      t.checkExpect(served.update(path), 1);
+      t.checkExpect(served.stats.get(5L << 32 | 3).clicks <= 2, true);
+      Files.delete(path);
+    }
+    catch (IOException e) {
+      t.checkExpect(e, null);
+    }
   }
 
-  // to test the win method
-  void testWin(Tester t) {
-    // General case: All cells have the same color
+  // to test the hot path against its allocation and cell budgets
+  void testHotPathBudgets(Tester t) {
+    // General case: Small, medium and viewport-drawn boards
+    for (HotPathBudget budget : HotPathBudget.measureAll(new int[] {20, 100, 1000}, 6, 4)) {
+      // Checking if every cost is within its budget
+      t.checkExpect(budget.overrun(), "");
+    }
+
+    // Edge case: Cost over budget
+    HotPathBudget over = new HotPathBudget("flood", 24, 0);
+    // Checking if the overrun is described
+    t.checkExpect(over.overrun(), "flood: 24.00 over budget 0.00");
+    // Checking if a cost at the budget is within it
+    t.checkExpect(new HotPathBudget("win", 0, 0).overrun(), "");
+  }
+
+  // to test the FloodBench class
+  void testFloodBench(Tester t) {
+    // General case: Measure a flood at the start of a game
+    FloodCase flood = new FloodCase("flood.early", 0.0);
+    flood.setup(20, 4);
+    BenchScore score = FloodBench.measure(flood, 1000000);
+    // Checking if runs were measured
+    t.checkExpect(score.ops > 0, true);
+    t.checkExpect(score.nanosPerOp() > 0, true);
+    // Checking if the snapshot is not changed by the runs
+    t.checkExpect(flood.snapshot.floodedCount < 400, true);
+
+    // General case: Every hot path has a case
+    // Checking if the cases are listed in order
+    t.checkExpect(FloodBench.cases().size(), 17);
+    t.checkExpect(FloodBench.cases().get(0).name, "createBoard");
+
+    // Edge case: Parsing parameter lists
+    // Checking if spaces are allowed
+    t.checkExpect(FloodBench.parseInts("10, 100,4096"), new int[] {10, 100, 4096});
+  }
+
+  // to test the colorOf method
+  void testColorOf(Tester t) {
+    // General case: Palette color of a cell
     FloodItWorld world = new FloodItWorld(3, 3);
-    Color winColor = Color.RED;
-    world.board.forEach(c -> c.color = winColor);
-    // Checking if the player has won
-    t.checkExpect(world.win(), true);
+    world.game.board.setColorAt(4, 2);
+    world.game.board.resetRegion();
+    // Checking if the palette color is returned
+    t.checkExpect(world.colorOf(4), world.colors.get(2));
 
-    // Edge case: Not all cells have the same color
-    FloodItWorld world1 = new FloodItWorld(3, 3);
-    world1.board.get(0).color = Color.RED;
-    world1.board.get(1).color = Color.BLUE;
-    // Checking if the player has not won
-    t.checkExpect(world1.win(), false);
-    // Edge case: 1x1 board with the same color
-    FloodItWorld world2 = new FloodItWorld(1, 1);
-    world2.board.get(0).color = Color.RED;
-    // Checking if the player has won
-    t.checkExpect(world2.win(), true);
+    // Edge case: 1 color
+    FloodItWorld world1 = new FloodItWorld(3, 1);
+    // Checking if every cell has the only palette color
+    t.checkExpect(world1.colorOf(8), world1.colors.get(0));
   }
 
   // to test the onKeyEvent method
   void testOnKeyEvent(Tester t) {
     // General case: Reset the game using 'r' key
     FloodItWorld world = new FloodItWorld(3, 3);
-    world.board.get(0).color = Color.RED;
+    world.game.play((world.game.board.colorAt(0) + 1) % 3);
     world.onKeyEvent("r");
+    // Checking if the click count is reset
+    t.checkExpect(world.game.clicks, 0);
     // Edge case: Pressing a different key
     FloodItWorld world1 = new FloodItWorld(3, 3);
+    int color = world1.game.board.colorAt(0);
     world1.onKeyEvent("a");
     // Checking if the game is unchanged
-    t.checkExpect(world1.board.get(0).color, world1.board.get(0).color);
+    t.checkExpect(world1.game.board.colorAt(0), color);
+    // General case: Undo and redo a losing move using 'u' and 'y' keys
+    FloodItWorld world3 = new FloodItWorld(5, 3, 1);
+    world3.game.maxTries = 1;
+    world3.game.play((world3.game.board.floodColor + 1) % 3);
+    world3.updateMessage();
+    world3.onKeyEvent("u");
+    // Checking if the click and the message are undone
+    t.checkExpect(world3.game.clicks, 0);
+    t.checkExpect(world3.message, "");
+    world3.onKeyEvent("y");
+    // Checking if the click and the message are back
+    t.checkExpect(world3.game.clicks, 1);
+    t.checkExpect(world3.message, "Oh no, you lost!");
+    // General case: Let the solver make a move using 'h' key
+    FloodItWorld world2 = new FloodItWorld(5, 3);
+    int flooded = world2.game.board.floodedCount;
+    world2.onKeyEvent("h");
+    // Checking if a move is made that grows the flooded region
+    t.checkExpect(world2.game.clicks, 1);
+    t.checkExpect(world2.game.board.floodedCount > flooded, true);
   }
 
   // to test the reset method
   void testReset(Tester t) {
     // General case: Reset the board
     FloodItWorld world = new FloodItWorld(3, 3);
-    world.board.get(0).color = Color.RED;
+    world.game.play((world.game.board.colorAt(0) + 1) % 3);
     world.reset();
     // Checking if the click count is reset
-    t.checkExpect(world.clicks, 0);
+    t.checkExpect(world.game.clicks, 0);
     // Checking if the message is reset
     t.checkExpect(world.message, "");
     // Checking if the elapsed time is reset
-    t.checkExpect(world.elapsedTime, 0.0);
+    t.checkExpect(world.game.elapsedTime, 0.0);
     // Edge case: Reset the board when no clicks have been made
     FloodItWorld world1 = new FloodItWorld(3, 3);
     world1.reset();
     // Checking if the click count is reset
-    t.checkExpect(world1.clicks, 0);
+    t.checkExpect(world1.game.clicks, 0);
     // Checking if the message is reset
     t.checkExpect(world1.message, "");
     // Checking if the elapsed time is reset
-    t.checkExpect(world1.elapsedTime, 0.0);
+    t.checkExpect(world1.game.elapsedTime, 0.0);
+    // General case: Reset to a seeded board
+    FloodItWorld world2 = new FloodItWorld(10, 3, 1);
+    ArrayList<Color> palette = world2.colors;
+    world2.reset(5);
+    // Checking if the board comes from the seed
+    t.checkExpect(world2.game.board.colors.toArray(),
+        new FloodItWorld(10, 3, 5).game.board.colors.toArray());
+    t.checkExpect(world2.game.seed, 5L);
+    // Checking if the palette is kept
+    t.checkExpect(world2.colors, palette);
   }
 
   // to test the onMouseClicked method
@@ -492,7 +7460,24 @@ class ExamplesFloodIt {
     Posn pos2 = new Posn(-20, -20);
     world2.onMouseClicked(pos2);
     // Checking if the click count is unchanged
-    t.checkExpect(world2.clicks, 0);
+    t.checkExpect(world2.game.clicks, 0);
+    // Edge case: Click in the margin left of the board
+    world2.onMouseClicked(new Posn(FloodItWorld.MARGIN - 1, 30));
+    // Checking if nothing is played
+    t.checkExpect(world2.game.clicks, 0);
+    // General case: Click on the shifted row of a hex board
+    FloodItWorld hex = new FloodItWorld(new HexTopology(3, 3), 3, 4);
+    int color = (hex.game.board.floodColor + 1) % 3;
+    hex.game.board.setColorAt(hex.game.board.indexOf(0, 1), color);
+    hex.game.board.resetRegion();
+    hex.onMouseClicked(new Posn(FloodItWorld.MARGIN + 15, FloodItWorld.MARGIN + 25));
+    // Checking if the cell under the mouse is played
+    t.checkExpect(hex.game.board.floodColor, color);
+    // Edge case: Click in the gap left by the shift
+    int clicks = hex.game.clicks;
+    hex.onMouseClicked(new Posn(FloodItWorld.MARGIN + 5, FloodItWorld.MARGIN + 25));
+    // Checking if nothing is played
+    t.checkExpect(hex.game.clicks, clicks);
   }
 
   // to test the roundNumber method
@@ -521,13 +7506,13 @@ class ExamplesFloodIt {
     FloodItWorld world = new FloodItWorld(3, 3);
     world.onTick();
     // Checking if the elapsed time is incremented
-    t.checkExpect(world.elapsedTime, 1.0);
+    t.checkExpect(world.game.elapsedTime, 1.0);
     // Edge case: Incrementing the elapsed time multiple times
     FloodItWorld world1 = new FloodItWorld(3, 3);
     world1.onTick();
     world1.onTick();
     // Checking if the elapsed time is incremented twice
-    t.checkExpect(world1.elapsedTime, 2.0);
+    t.checkExpect(world1.game.elapsedTime, 2.0);
   }
 
   // to test the makeScene method
@@ -539,6 +7524,9 @@ class ExamplesFloodIt {
     t.checkExpect(scene.width, 70);
     // Checking if the scene height is correct
     t.checkExpect(scene.height, 110);
+    // Checking if an idle frame repaints no cells
+    world.makeScene();
+    t.checkExpect(world.renderer.painted, 0);
     // Edge case: Creating a scene with a 1x1 board
     FloodItWorld world1 = new FloodItWorld(1, 3);
     WorldScene scene1 = world1.makeScene();
@@ -553,6 +7541,282 @@ class ExamplesFloodIt {
     t.checkExpect(scene0.width, 10);
     // Checking if the scene height is correct
     t.checkExpect(scene0.height, 50);
+    // Edge case: Largest board drawn whole
+    // Checking if it is drawn without a viewport
+    t.checkExpect(new FloodItWorld(40, 3).viewport, null);
+
+    // General case: Board too large to draw whole
+    FloodItWorld large = new FloodItWorld(1000, 4, 7);
+    WorldScene largeScene = large.makeScene();
+    // Checking if the scene is sized to the viewport
+    t.checkExpect(largeScene.width, Viewport.PIXELS + 10);
+    t.checkExpect(large.viewRenderer.painted, 500 * 500);
+    // Checking if the keys zoom and scroll the viewport
+    large.onKeyEvent("+");
+    t.checkExpect(large.viewport.level, 0);
+    large.onKeyEvent("right");
+    large.onKeyEvent("down");
+    t.checkExpect(large.viewport.originX, 200);
+    t.checkExpect(large.viewport.originY, 200);
+    large.onKeyEvent("-");
+    t.checkExpect(large.viewport.level, -1);
+    // Checking if a click plays the cell under it
+    int cell = large.viewport.cellAt(20, 6);
+    int color = large.game.board.colorAt(cell);
+    large.onMouseClicked(new Posn(20 + FloodItWorld.MARGIN, 6 + FloodItWorld.MARGIN));
+    t.checkExpect(large.game.board.floodColor, color);
+    // Checking if a click past the board does nothing
+    int clicks = large.game.clicks;
+    large.onMouseClicked(new Posn(805, 805));
+    t.checkExpect(large.game.clicks, clicks);
+    // Checking if an undo leaves no ranges queued for the whole-board renderer
+    large.game.play((large.game.board.floodColor + 1) % 4);
+    large.onKeyEvent("u");
+    large.makeScene();
+    t.checkExpect(large.game.clicks, clicks);
+    t.checkExpect(large.renderer.pending.size, 0);
+
+    // General case: Large torus and eight-neighbor boards, drawn through a viewport too
+    FloodItWorld torus = new FloodItWorld(new TorusTopology(1000, 1000), 4, 7);
+    torus.makeScene();
+    // Checking if the keys scroll the viewport
+    torus.onKeyEvent("+");
+    torus.onKeyEvent("right");
+    t.checkExpect(torus.viewport.originX, 200);
+    // Checking if a click plays the cell under it
+    int torusCell = torus.viewport.cellAt(20, 6);
+    int torusColor = torus.game.board.colorAt(torusCell);
+    torus.onMouseClicked(new Posn(20 + FloodItWorld.MARGIN, 6 + FloodItWorld.MARGIN));
+    t.checkExpect(torus.game.board.floodColor, torusColor);
+    FloodItWorld eight = new FloodItWorld(new EightTopology(1000, 1000), 4, 7);
+    eight.makeScene();
+    eight.onKeyEvent("down");
+    int eightCell = eight.viewport.cellAt(30, 40);
+    int eightColor = eight.game.board.colorAt(eightCell);
+    eight.onMouseClicked(new Posn(30 + FloodItWorld.MARGIN, 40 + FloodItWorld.MARGIN));
+    t.checkExpect(eight.game.board.floodColor, eightColor);
+
+    // General case: Board wider than it is tall
+    FloodItWorld wide = new FloodItWorld(new SquareTopology(6, 2), 3, 1);
+    WorldScene wideScene = wide.makeScene();
+    // Checking if the scene follows both sides
+    t.checkExpect(wideScene.width, 130);
+    t.checkExpect(wideScene.height, 90);
+    // Edge case: Hex board, whose odd rows stick out by half a tile
+    FloodItWorld hex = new FloodItWorld(new HexTopology(3, 3), 3, 1);
+    // Checking if the scene is wider by half a tile
+    t.checkExpect(hex.makeScene().width, 80);
+    // Edge case: Large board that is not square
+    // Checking if it is drawn without a viewport
+    t.checkExpect(new FloodItWorld(new SquareTopology(50, 10), 3, 1).viewport, null);
+  }
+
+  // to test the Viewport class
+  void testViewport(Tester t) {
+    // General case: Board that fits when zoomed in
+    Viewport small = new Viewport(100);
+    // Checking if it starts at the highest level showing the whole board
+    t.checkExpect(small.level, 3);
+    t.checkExpect(small.visibleCells(), 100);
+    // Checking if pixels map to the cells under them
+    t.checkExpect(small.cellAt(17, 9), 2 * 100 + 1);
+
+    // General case: Board larger than the window
+    Viewport view = new Viewport(4096);
+    // Checking if every pixel starts out covering a block of cells
+    t.checkExpect(view.level, -3);
+    t.checkExpect(view.cellsPerPixel(), 8);
+    t.checkExpect(view.visibleCells(), 4096);
+    // Checking if zooming keeps the center cell in place
+    view.zoom(3);
+    t.checkExpect(view.level, 0);
+    t.checkExpect(view.originX, 2048 - 400);
+    t.checkExpect(view.originY, 2048 - 400);
+    // Checking if scrolling moves by a quarter of the window
+    view.scroll(0.25, 0);
+    t.checkExpect(view.originX, 1848);
+    t.checkExpect(view.cellAt(0, 0), 1848 * 4096 + 1648);
+
+    // Edge case: Scrolling and zooming past the limits
+    view.scroll(10, 10);
+    // Checking if the window stays on the board
+    t.checkExpect(view.originX, 4096 - 800);
+    t.checkExpect(view.originY, 4096 - 800);
+    view.zoom(-1);
+    // Checking if a zoomed-out window starts on a block
+    t.checkExpect(view.originX, 4096 - 1600);
+    view.zoom(100);
+    t.checkExpect(view.level, Viewport.MAX_LEVEL);
+    view.zoom(-100);
+    t.checkExpect(view.level, -3);
+
+    // Edge case: Pixels outside the window or past the board
+    Viewport wide = new Viewport(1000);
+    // Checking if there is no cell
+    t.checkExpect(wide.cellAt(-1, 0), -1);
+    t.checkExpect(wide.cellAt(0, 800), -1);
+    t.checkExpect(wide.cellAt(799, 0), -1);
+    t.checkExpect(wide.cellAt(499, 0), 998 * 1000);
+  }
+
+  // to test the Mipmap class
+  void testMipmap(Tester t) {
+    // General case: 4x4 board
+    // 1 2 0 0
+    // 2 3 0 0
+    // 1 1 1 2
+    // 1 1 2 2
+    Board board = new Board(4, 4);
+    int[][] rows = {{1, 2, 0, 0}, {2, 3, 0, 0}, {1, 1, 1, 2}, {1, 1, 2, 2}};
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        board.setColorAt(board.indexOf(x, y), rows[y][x]);
+      }
+    }
+    board.resetRegion();
+    Mipmap mipmap = new Mipmap(board);
+    // Checking if each block keeps the first cell of its most common color
+    t.checkExpect(mipmap.level(1), new int[] {board.indexOf(0, 1), board.indexOf(0, 2),
+        board.indexOf(2, 0), board.indexOf(2, 3)});
+    // Checking if higher levels are built from the level below
+    t.checkExpect(mipmap.levels.size(), 1);
+    t.checkExpect(mipmap.level(2), new int[] {board.indexOf(0, 1)});
+    t.checkExpect(mipmap.blocks(2), 1);
+    // Checking if a block shows the flooded color once its cell is flooded
+    board.flood(2);
+    board.flood(1);
+    t.checkExpect(board.colorAt(mipmap.level(1)[0]), 1);
+    // Checking if a level built after moves votes with the flooded color
+    t.checkExpect(new Mipmap(board).level(1)[0], board.indexOf(0, 0));
+
+    // Edge case: Board of an odd size
+    Board odd = new Board(5, 2);
+    odd.setColorAt(odd.indexOf(4, 4), 1);
+    Mipmap oddMipmap = new Mipmap(odd);
+    // Checking if the partial blocks at the edges are kept
+    t.checkExpect(oddMipmap.blocks(1), 3);
+    t.checkExpect(oddMipmap.level(1)[8], odd.indexOf(4, 4));
+    t.checkExpect(oddMipmap.blocks(3), 1);
+  }
+
+  // to test the ViewportRenderer class
+  void testViewportRenderer(Tester t) {
+    FloodItGame game = new FloodItGame(1000, 4, 2);
+    ArrayList<Color> palette = FloodItWorld.initColors(4, 2);
+    Viewport view = new Viewport(1000);
+    ViewportRenderer renderer = new ViewportRenderer();
+    // General case: Zoomed-out window
+    WorldImage image = renderer.render(game.board, palette, view);
+    // Checking if one pixel is painted per block of 2x2 cells
+    t.checkExpect(renderer.painted, 500 * 500);
+    t.checkExpect(renderer.columns, 500);
+    t.checkExpect(renderer.scale, 1);
+    int rep = renderer.mipmap.level(1)[3 * 500 + 7];
+    t.checkExpect(renderer.raster.getPixel(3, 7), palette.get(game.board.colorAt(rep)));
+    // Checking if an idle frame paints nothing and reuses the image
+    t.checkExpect(renderer.render(game.board, palette, view), image);
+    t.checkExpect(renderer.painted, 0);
+    // Checking if a move repaints the window only
+    game.play((game.board.floodColor + 1) % 4);
+    renderer.render(game.board, palette, view);
+    t.checkExpect(renderer.painted, 500 * 500);
+
+    // General case: Zoomed in past one pixel per cell, scrolled to the edge
+    view.zoom(2);
+    view.scroll(10, 0);
+    renderer.render(game.board, palette, view);
+    // Checking if only the visible cells are painted, scaled up
+    t.checkExpect(renderer.painted, 400 * 400);
+    t.checkExpect(renderer.scale, 2);
+    t.checkExpect(renderer.raster.getPixel(5, 6),
+        palette.get(game.board.colorAt((view.originX + 5) * 1000 + view.originY + 6)));
+
+    // Edge case: Board far larger than the window
+    Board big = new Board(4096, 3);
+    big.fillRandom(1);
+    big.resetRegion();
+    renderer.render(big, palette, new Viewport(4096));
+    // Checking if the frame costs the window, not the board
+    t.checkExpect(renderer.painted, 512 * 512);
+  }
+
+  // to test the BoardRenderer class
+  void testBoardRenderer(Tester t) {
+    // General case: First frame paints every cell
+    FloodItGame game = new FloodItGame(10, 4, 2);
+    ArrayList<Color> palette = new FloodItWorld(1, 4).colors;
+    BoardRenderer renderer = new BoardRenderer();
+    WorldImage image = renderer.render(game.board, palette, 20);
+    // Checking if every cell is painted
+    t.checkExpect(renderer.painted, 100);
+    // Edge case: Idle frame
+    // Checking if nothing is painted and the same image is reused
+    t.checkExpect(renderer.render(game.board, palette, 20), image);
+    t.checkExpect(renderer.painted, 0);
+    // General case: Frame after a move
+    game.play((game.board.floodColor + 1) % 4);
+    renderer.render(game.board, palette, 20);
+    // Checking if only the flooded region is painted
+    t.checkExpect(renderer.painted, game.board.floodedCount);
+    // Edge case: Frame after a reset
+    game.reset(3);
+    renderer.render(game.board, palette, 20);
+    // Checking if every cell is painted again
+    t.checkExpect(renderer.painted, 100);
+    // Edge case: Frame after the colors are reassigned on the same board
+    game.board.setColorAt(5, 0);
+    game.board.resetRegion();
+    renderer.render(game.board, palette, 20);
+    // Checking if every cell is painted again
+    t.checkExpect(renderer.painted, 100);
+
+    // General case: Hex board, drawn with odd rows shifted
+    FloodItGame hex = new FloodItGame(new HexTopology(3, 2), 4, 2);
+    BoardRenderer hexRenderer = new BoardRenderer();
+    hexRenderer.render(hex.board, palette, 20);
+    ComputedPixelImage raster = hexRenderer.raster;
+    // Checking if each cell is a 2x2 block with room for the shift
+    t.checkExpect(raster.getPixel(0, 1), palette.get(hex.board.colorAt(0)));
+    t.checkExpect(raster.getPixel(1, 2), palette.get(hex.board.colorAt(1)));
+    t.checkExpect(raster.getPixel(6, 3), palette.get(hex.board.colorAt(5)));
+    t.checkExpect(hexRenderer.painted, 6);
+  }
+
+  // to test the repaintLater method of BoardRenderer
+  void testRepaintLater(Tester t) {
+    // General case: Frame after an undo
+    FloodItGame game = new FloodItGame(10, 4, 2);
+    game.enableUndo(1 << 20);
+    ArrayList<Color> palette = new FloodItWorld(1, 4).colors;
+    BoardRenderer renderer = new BoardRenderer();
+    renderer.render(game.board, palette, 20);
+    game.play((game.board.floodColor + 1) % 4);
+    renderer.render(game.board, palette, 20);
+    UndoEntry entry = game.undo();
+    renderer.repaintLater(entry.ranges);
+    renderer.render(game.board, palette, 20);
+    // Checking if the region and the cells taken out of it are painted
+    t.checkExpect(renderer.painted, game.board.floodedCount + entry.absorbed);
+    // Edge case: Next idle frame
+    renderer.render(game.board, palette, 20);
+    // Checking if the pending cells are not painted again
+    t.checkExpect(renderer.painted, 0);
+  }
+
+  // to test the CachedText class
+  void testCachedText(Tester t) {
+    // General case: Same text twice
+    CachedText text = new CachedText();
+    TextImage image = text.get("Clicks: 1/10", 10, Color.BLACK);
+    // Checking if the image is reused
+    t.checkExpect(text.get("Clicks: 1/10", 10, Color.BLACK) == image, true);
+    // Edge case: Changed text
+    // Checking if a new image is made
+    t.checkExpect(text.get("Clicks: 2/10", 10, Color.BLACK) == image, false);
+    // Edge case: Changed size
+    TextImage image1 = text.get("Clicks: 2/10", 10, Color.BLACK);
+    // Checking if a new image is made
+    t.checkExpect(text.get("Clicks: 2/10", 12, Color.BLACK) == image1, false);
   }
 
   // to test the pickFontSize method
@@ -579,11 +7843,10 @@ class ExamplesFloodIt {
   void testBigBang(Tester t) {
     // edit the world numbers: (Size, # of Colors)
     FloodItWorld world = new FloodItWorld(10, 5);
-    int cellSize = 20;
     int buffer = 10;
     int footerConst = 40;
-    int worldWidth = world.size * cellSize + buffer;
-    int worldHeight = world.size * cellSize + footerConst;
+    int worldWidth = world.boardWidth() + buffer;
+    int worldHeight = world.boardHeight() + footerConst;
     double tickRate = 1;
     world.bigBang(worldWidth, worldHeight, tickRate);
   }
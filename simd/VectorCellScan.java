@@ -0,0 +1,78 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// to scan the cells of a byte array with the vector unit, as many cells
+// at once as the preferred vector shape holds (up to 64). Lanes start at
+// multiples of the lane count, so the mask bits of a vector are always
+// in one word. Compiled and run with --add-modules jdk.incubator.vector;
+// CellScan falls back on its scalar loops when this class is missing
+class VectorCellScan extends CellScan {
+  static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+  static final int LANES = SPECIES.length();
+
+  // to return the mask bits of the vector starting at the given cell
+  static long lanes(long[] mask, int index) {
+    return word(mask, index) >>> (index & 63);
+  }
+
+  @Override
+  String name() {
+    return "vector " + SPECIES.vectorBitSize() + "-bit";
+  }
+
+  @Override
+  boolean allEqual(byte[] cells, long[] skip, byte color) {
+    int end = SPECIES.loopBound(cells.length);
+    for (int i = 0; i < end; i += LANES) {
+      VectorMask<Byte> same = ByteVector.fromArray(SPECIES, cells, i)
+          .compare(VectorOperators.EQ, color);
+      if (!same.or(VectorMask.fromLong(SPECIES, lanes(skip, i))).allTrue()) {
+        return false;
+      }
+    }
+    for (int i = end; i < cells.length; i++) {
+      if (cells[i] != color && !bit(skip, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  void count(byte[] cells, long[] skip, int[] counts) {
+    int end = SPECIES.loopBound(cells.length);
+    for (int i = 0; i < end; i += LANES) {
+      ByteVector vector = ByteVector.fromArray(SPECIES, cells, i);
+      VectorMask<Byte> kept = VectorMask.fromLong(SPECIES, ~lanes(skip, i));
+      for (int c = 0; c < counts.length; c++) {
+        counts[c] += vector.compare(VectorOperators.EQ, (byte) c, kept).trueCount();
+      }
+    }
+    for (int i = end; i < cells.length; i++) {
+      if (!bit(skip, i)) {
+        counts[cells[i]]++;
+      }
+    }
+  }
+
+  @Override
+  void fill(byte[] cells, long[] mask, byte color) {
+    ByteVector fill = ByteVector.broadcast(SPECIES, color);
+    // cells past the last word of the mask are never filled
+    int limit = (int) Math.min(cells.length, mask.length * 64L);
+    int end = SPECIES.loopBound(limit);
+    for (int i = 0; i < end; i += LANES) {
+      long bits = lanes(mask, i);
+      if (bits != 0) {
+        fill.intoArray(cells, i, VectorMask.fromLong(SPECIES, bits));
+      }
+    }
+    for (int i = end; i < limit; i++) {
+      if (bit(mask, i)) {
+        cells[i] = color;
+      }
+    }
+  }
+}